@@ -0,0 +1,474 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mixed-workload HTTP load driver for the EMS API. Runs with the JDK alone:
+ *
+ *   java perf/LoadTest.java run --base-url http://localhost:8090 --employees 100000 \
+ *        [--duration 60s] [--warmup 15s] [--concurrency 64] [--mix employees.get=50,employees.export=0] \
+ *        [--label name] [--out perf/results/load.csv]
+ *   java perf/LoadTest.java compare baseline.csv candidate.csv
+ *
+ * Every /api/employees and /api/departments route is an operation with a weight;
+ * each worker (a virtual thread) repeatedly picks one at random and waits for its
+ * response (closed loop, so latencies under overload understate queueing). Reads
+ * target the seeded rows; updates and deletes only touch rows the run created
+ * itself, so the data set stays the same size. The report holds, per operation,
+ * request and error counts, throughput and p50/p99/p999 latency.
+ */
+public class LoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final String[] NAME_PREFIXES = {
+            "ja", "mar", "rob", "pat", "jen", "mic", "oli", "ame", "geo", "har", "noa", "lil", "wei", "yuk",
+            "smi", "jon", "tay", "bro", "pat", "wil", "kha", "now", "wan", "gar", "mur", "ros", "sil", "che"
+    };
+
+    record Operation(String name, double weight) {
+    }
+
+    // Default mix: read-heavy, like a directory UI, with every write path exercised
+    private static final List<Operation> DEFAULT_MIX = List.of(
+            new Operation("employees.get", 30),
+            new Operation("employees.list", 20),
+            new Operation("employees.list.filtered", 5),
+            new Operation("employees.search", 10),
+            new Operation("employees.create", 4),
+            new Operation("employees.update", 3),
+            new Operation("employees.patch", 3),
+            new Operation("employees.delete", 2),
+            new Operation("employees.batch", 1),
+            new Operation("employees.export", 0.05),
+            new Operation("departments.list", 10),
+            new Operation("departments.get", 5),
+            new Operation("departments.create", 0.5),
+            new Operation("departments.update", 0.5),
+            new Operation("departments.delete", 0.5));
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("compare")) {
+            compare(Path.of(args[1]), Path.of(args[2]));
+        } else if (args.length >= 1 && args[0].equals("run")) {
+            new LoadTest(options(Arrays.copyOfRange(args, 1, args.length))).run();
+        } else {
+            System.err.println("usage: LoadTest run --base-url URL --employees N [options] | LoadTest compare A.csv B.csv");
+            System.exit(2);
+        }
+    }
+
+    private final String baseUrl;
+    private final long employees;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int concurrency;
+    private final List<Operation> mix;
+    private final double[] cumulativeWeights;
+    private final String label;
+    private final Path out;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentLinkedQueue<Long> createdEmployees = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> createdDepartments = new ConcurrentLinkedQueue<>();
+
+    private long firstEmployeeId;
+    private long[] departmentIds;
+    private volatile long measureFromNanos;
+
+    LoadTest(Map<String, String> options) {
+        this.baseUrl = require(options, "base-url").replaceAll("/$", "");
+        this.employees = Long.parseLong(require(options, "employees"));
+        this.duration = duration(options.getOrDefault("duration", "60s"));
+        this.warmup = duration(options.getOrDefault("warmup", "15s"));
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        this.mix = mix(options.get("mix"));
+        this.cumulativeWeights = new double[mix.size()];
+        double total = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            total += mix.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+        this.label = options.getOrDefault("label", "unlabelled");
+        this.out = Path.of(options.getOrDefault("out", "perf/results/load-" + runId + ".csv"));
+    }
+
+    void run() throws Exception {
+        discoverSeedData();
+        System.out.printf("Load test %s: %d workers, warm-up %s, measuring %s%n", label, concurrency, warmup, duration);
+
+        long start = System.nanoTime();
+        measureFromNanos = start + warmup.toNanos();
+        long endNanos = measureFromNanos + duration.toNanos();
+
+        List<Worker> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = new Worker(mix.size());
+                workers.add(worker);
+                executor.submit(() -> worker.loop(endNanos));
+            }
+        }
+
+        List<String[]> rows = report(workers, duration.toNanos() / 1e9);
+        write(rows);
+        print(rows);
+        System.out.println("Report: " + out);
+    }
+
+    private void discoverSeedData() throws IOException, InterruptedException {
+        HttpResponse<String> page = client.send(get("/api/employees?limit=1"), HttpResponse.BodyHandlers.ofString());
+        Matcher first = ID.matcher(page.body());
+        if (page.statusCode() != 200 || !first.find()) {
+            throw new IllegalStateException("No employees at " + baseUrl + "; start the backend with the perf profile");
+        }
+        firstEmployeeId = Long.parseLong(first.group(1));
+
+        HttpResponse<String> departments = client.send(get("/api/departments"), HttpResponse.BodyHandlers.ofString());
+        Matcher ids = ID.matcher(departments.body());
+        List<Long> found = new ArrayList<>();
+        while (ids.find()) found.add(Long.parseLong(ids.group(1)));
+        departmentIds = found.stream().mapToLong(Long::longValue).toArray();
+        if (departmentIds.length == 0) throw new IllegalStateException("No departments at " + baseUrl);
+    }
+
+    private final class Worker {
+        // Per-operation latencies in nanoseconds, kept per worker so recording never contends
+        final long[][] latencies;
+        final int[] counts;
+        final int[] errors;
+
+        Worker(int operations) {
+            latencies = new long[operations][1024];
+            counts = new int[operations];
+            errors = new int[operations];
+        }
+
+        void loop(long endNanos) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < endNanos) {
+                int op = pick(random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+                long started = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = execute(mix.get(op).name(), random);
+                } catch (IOException ex) {
+                    ok = false;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long elapsed = System.nanoTime() - started;
+                if (started >= measureFromNanos) record(op, elapsed, ok);
+            }
+        }
+
+        void record(int op, long elapsed, boolean ok) {
+            if (counts[op] == latencies[op].length) {
+                latencies[op] = Arrays.copyOf(latencies[op], counts[op] * 2);
+            }
+            latencies[op][counts[op]++] = elapsed;
+            if (!ok) errors[op]++;
+        }
+    }
+
+    private int pick(double sample) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (sample < cumulativeWeights[i]) return i;
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private boolean execute(String operation, ThreadLocalRandom random) throws IOException, InterruptedException {
+        return switch (operation) {
+            case "employees.get" -> send(get("/api/employees/" + seededEmployee(random)));
+            case "employees.list" -> send(get("/api/employees?limit=50&after=" + (seededEmployee(random) - 1)));
+            case "employees.list.filtered" -> send(get("/api/employees?limit=50&departmentId=" + department(random)));
+            case "employees.search" -> send(get("/api/employees/search?limit=10&q="
+                    + NAME_PREFIXES[random.nextInt(NAME_PREFIXES.length)]));
+            case "employees.create" -> createEmployee(random);
+            case "employees.update" -> {
+                // Taken out of the queue while in use so a concurrent delete cannot remove it
+                Long id = createdEmployees.poll();
+                if (id == null) yield createEmployee(random);
+                boolean ok = send(json("PUT", "/api/employees/" + id, employeeJson(random)));
+                createdEmployees.add(id);
+                yield ok;
+            }
+            case "employees.patch" -> send(json("PATCH", "/api/employees/" + seededEmployee(random),
+                    "{\"lastName\":\"Patched" + random.nextInt(1000) + "\"}"));
+            case "employees.delete" -> {
+                Long id = createdEmployees.poll();
+                if (id == null) yield createEmployee(random);
+                yield send(request("/api/employees/" + id).DELETE().build());
+            }
+            case "employees.batch" -> importBatch(random);
+            case "employees.export" -> send(get("/api/employees/export?format=" + (random.nextBoolean() ? "ndjson" : "csv")));
+            case "departments.list" -> send(get("/api/departments"));
+            case "departments.get" -> send(get("/api/departments/" + department(random)));
+            case "departments.create" -> createDepartment();
+            case "departments.update" -> {
+                Long id = createdDepartments.poll();
+                if (id == null) yield createDepartment();
+                boolean ok = send(json("PUT", "/api/departments/" + id, departmentJson()));
+                createdDepartments.add(id);
+                yield ok;
+            }
+            case "departments.delete" -> {
+                Long id = createdDepartments.poll();
+                if (id == null) yield createDepartment();
+                yield send(request("/api/departments/" + id).DELETE().build());
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        };
+    }
+
+    private boolean createEmployee(ThreadLocalRandom random) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(json("POST", "/api/employees", employeeJson(random)),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher id = ID.matcher(response.body());
+        if (response.statusCode() == 201 && id.find()) {
+            createdEmployees.add(Long.parseLong(id.group(1)));
+            return true;
+        }
+        return false;
+    }
+
+    private boolean createDepartment() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(json("POST", "/api/departments", departmentJson()),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher id = ID.matcher(response.body());
+        if (response.statusCode() == 201 && id.find()) {
+            createdDepartments.add(Long.parseLong(id.group(1)));
+            return true;
+        }
+        return false;
+    }
+
+    private boolean importBatch(ThreadLocalRandom random) throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100; i++) body.append(employeeJson(random)).append('\n');
+        HttpRequest request = request("/api/employees/batch")
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        return send(request);
+    }
+
+    private String employeeJson(ThreadLocalRandom random) {
+        long n = sequence.incrementAndGet();
+        return "{\"firstName\":\"Load\",\"lastName\":\"Test" + n + "\",\"email\":\"load." + runId + "." + n
+                + "@example.com\",\"departmentId\":" + department(random) + "}";
+    }
+
+    private String departmentJson() {
+        long n = sequence.incrementAndGet();
+        return "{\"departmentName\":\"Load " + runId + " " + n + "\",\"departmentDescription\":\"Load test\"}";
+    }
+
+    private long seededEmployee(ThreadLocalRandom random) {
+        return firstEmployeeId + random.nextLong(employees);
+    }
+
+    private long department(ThreadLocalRandom random) {
+        return departmentIds[random.nextInt(departmentIds.length)];
+    }
+
+    private boolean send(HttpRequest request) throws IOException, InterruptedException {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        return status < 400;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60));
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest json(String method, String path, String body) {
+        return request(path)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // ---- Reporting
+
+    private static final String HEADER = "operation,requests,errors,throughput_rps,mean_ms,p50_ms,p99_ms,p999_ms,max_ms";
+
+    private List<String[]> report(List<Worker> workers, double seconds) {
+        List<String[]> rows = new ArrayList<>();
+        List<long[]> all = new ArrayList<>();
+        int totalErrors = 0;
+        for (int op = 0; op < mix.size(); op++) {
+            int count = 0;
+            int errors = 0;
+            for (Worker worker : workers) {
+                count += worker.counts[op];
+                errors += worker.errors[op];
+            }
+            long[] samples = new long[count];
+            int offset = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies[op], 0, samples, offset, worker.counts[op]);
+                offset += worker.counts[op];
+            }
+            if (count > 0) rows.add(row(mix.get(op).name(), samples, errors, seconds));
+            all.add(samples);
+            totalErrors += errors;
+        }
+        long[] merged = all.stream().flatMapToLong(Arrays::stream).toArray();
+        rows.add(row("TOTAL", merged, totalErrors, seconds));
+        return rows;
+    }
+
+    private static String[] row(String name, long[] samples, int errors, double seconds) {
+        Arrays.sort(samples);
+        double mean = samples.length == 0 ? 0 : Arrays.stream(samples).average().orElse(0);
+        return new String[]{
+                name,
+                Integer.toString(samples.length),
+                Integer.toString(errors),
+                format(samples.length / seconds),
+                millis(mean),
+                millis(percentile(samples, 0.50)),
+                millis(percentile(samples, 0.99)),
+                millis(percentile(samples, 0.999)),
+                millis(samples.length == 0 ? 0 : samples[samples.length - 1])
+        };
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private void write(List<String[]> rows) throws IOException {
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.println("# label=" + label);
+            writer.println("# started=" + Instant.now());
+            writer.println("# base-url=" + baseUrl + " employees=" + employees + " concurrency=" + concurrency
+                    + " warmup=" + warmup + " duration=" + duration);
+            writer.println(HEADER);
+            rows.forEach(row -> writer.println(String.join(",", row)));
+        }
+    }
+
+    private static void print(List<String[]> rows) {
+        System.out.printf("%-26s %9s %7s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (String[] row : rows) {
+            System.out.printf("%-26s %9s %7s %10s %9s %9s %9s %9s%n",
+                    row[0], row[1], row[2], row[3], row[5], row[6], row[7], row[8]);
+        }
+    }
+
+    private static void compare(Path baseline, Path candidate) throws IOException {
+        Map<String, String[]> before = read(baseline);
+        Map<String, String[]> after = read(candidate);
+        System.out.printf("%-26s %18s %18s %18s %18s%n", "operation", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (Map.Entry<String, String[]> entry : after.entrySet()) {
+            String[] old = before.get(entry.getKey());
+            if (old == null) continue;
+            String[] now = entry.getValue();
+            System.out.printf("%-26s %18s %18s %18s %18s%n", entry.getKey(),
+                    delta(old[3], now[3]), delta(old[5], now[5]), delta(old[6], now[6]), delta(old[7], now[7]));
+        }
+    }
+
+    private static Map<String, String[]> read(Path report) throws IOException {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(report)) {
+            if (line.startsWith("#") || line.startsWith("operation,") || line.isBlank()) continue;
+            String[] row = line.split(",");
+            rows.put(row[0], row);
+        }
+        return rows;
+    }
+
+    private static String delta(String before, String after) {
+        double old = Double.parseDouble(before);
+        double now = Double.parseDouble(after);
+        String change = old == 0 ? "n/a" : String.format(Locale.ROOT, "%+.1f%%", (now - old) / old * 100);
+        return after + " (" + change + ")";
+    }
+
+    // ---- Options
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --option, got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static List<Operation> mix(String overrides) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        DEFAULT_MIX.forEach(op -> weights.put(op.name(), op.weight()));
+        if (overrides != null && !overrides.isBlank()) {
+            for (String pair : overrides.split(",")) {
+                String[] parts = pair.split("=", 2);
+                if (!weights.containsKey(parts[0].trim())) {
+                    throw new IllegalArgumentException("Unknown operation " + parts[0] + "; known: " + weights.keySet());
+                }
+                weights.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            }
+        }
+        return weights.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(entry -> new Operation(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) throw new IllegalArgumentException("--" + name + " is required");
+        return value;
+    }
+
+    private static Duration duration(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        if (v.endsWith("s")) return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        if (v.endsWith("m")) return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+
+    private static String millis(double nanos) {
+        return format(nanos / 1_000_000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+#
+# Compares platform-thread and virtual-thread request execution under the same load.
+#
+# Starts the packaged backend once per mode, warms it up, then drives GET /api/employees/{id}
+# and the first list page with high concurrency using `hey` (https://github.com/rakyll/hey).
+# Results for each mode are written to perf/results/thread-modes-<timestamp>/.
+#
+# Admission control is switched off (--ems.admission.enabled=false): one load generator is a
+# single client, and its per-client quota would turn most requests into 429s.
+#
+# Usage: perf/compare-thread-modes.sh [concurrency] [duration] [extra Spring args...]
+#   e.g. perf/compare-thread-modes.sh 2000 60s --spring.datasource.hikari.maximum-pool-size=20
+#
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+CONCURRENCY="${1:-1000}"
+DURATION="${2:-30s}"
+shift $(( $# > 2 ? 2 : $# ))
+EXTRA_ARGS=("$@")
+PORT="${PORT:-8090}"
+BASE_URL="http://localhost:${PORT}/api/employees"
+OUT_DIR="perf/results/thread-modes-$(date +%Y%m%d-%H%M%S)"
+
+command -v hey >/dev/null || { echo "hey is required (go install github.com/rakyll/hey@latest)"; exit 1; }
+
+JAR=$(ls target/ems-*.jar 2>/dev/null | grep -v plain | head -n 1 || true)
+if [[ -z "${JAR}" ]]; then
+    ./mvnw -q -DskipTests package
+    JAR=$(ls target/ems-*.jar | grep -v plain | head -n 1)
+fi
+mkdir -p "${OUT_DIR}"
+
+run_mode() {
+    local mode="$1" virtual="$2"
+    echo "=== ${mode} threads"
+    java -jar "${JAR}" --server.port="${PORT}" --spring.threads.virtual.enabled="${virtual}" \
+        --spring.jpa.show-sql=false --ems.admission.enabled=false "${EXTRA_ARGS[@]}" > "${OUT_DIR}/${mode}-server.log" 2>&1 &
+    local pid=$!
+    trap "kill ${pid} 2>/dev/null || true" EXIT
+
+    until curl -sf "http://localhost:${PORT}/actuator/health" >/dev/null; do sleep 0.5; done
+
+    local id
+    id=$(curl -sf "${BASE_URL}?limit=1" | sed -n 's/.*"id":\([0-9]*\).*/\1/p')
+    [[ -n "${id}" ]] || { echo "No employees found; seed the database first"; exit 1; }
+
+    hey -z 10s -c 50 "${BASE_URL}/${id}" > /dev/null                       # warm-up
+    hey -z "${DURATION}" -c "${CONCURRENCY}" "${BASE_URL}/${id}" > "${OUT_DIR}/${mode}-get-by-id.txt"
+    hey -z "${DURATION}" -c "${CONCURRENCY}" "${BASE_URL}?limit=50" > "${OUT_DIR}/${mode}-list.txt"
+
+    kill "${pid}"; wait "${pid}" 2>/dev/null || true
+    trap - EXIT
+}
+
+run_mode platform false
+run_mode virtual true
+
+for f in "${OUT_DIR}"/*-get-by-id.txt "${OUT_DIR}"/*-list.txt; do
+    echo "--- $(basename "${f}" .txt)"
+    grep -E "Requests/sec|50% in|99% in|\[(2|4|5)[0-9]{2}\]" "${f}"
+done
+echo "Full reports: ${OUT_DIR}"
@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+#
+# Offline end-to-end load test: no MySQL needed.
+#
+# Builds the backend with H2 on the classpath (Maven `perf` profile), starts it under the
+# `perf` Spring profile with a synthetic directory of EMPLOYEES rows, waits until seeding has
+# finished (readiness probe) and drives the mixed workload in perf/LoadTest.java against every
+# /api/employees and /api/departments route. The CSV report (throughput, p50/p99/p999 per
+# operation) is written to perf/results/ and named after the current commit, so two runs can be
+# compared with:
+#
+#   java perf/LoadTest.java compare perf/results/load-<before>.csv perf/results/load-<after>.csv
+#
+# Usage: perf/load-test.sh [employees] [duration] [concurrency] [extra LoadTest options...]
+#   e.g. perf/load-test.sh 1000000 120s 128 --mix employees.export=0
+#
+# Larger data sets need heap for the in-memory database: JAVA_OPTS defaults to -Xmx4g
+# (roughly 1 GB per million employees plus headroom); raise it for 5M.
+#
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+EMPLOYEES="${1:-100000}"
+DURATION="${2:-60s}"
+CONCURRENCY="${3:-64}"
+shift $(( $# > 3 ? 3 : $# ))
+EXTRA_ARGS=("$@")
+PORT="${PORT:-8090}"
+JAVA_OPTS="${JAVA_OPTS:--Xmx4g}"
+LABEL="$(git rev-parse --short HEAD 2>/dev/null || echo local)$(git diff --quiet 2>/dev/null || echo -dirty)"
+OUT="perf/results/load-${LABEL}-${EMPLOYEES}.csv"
+
+# The perf build differs from the regular jar (H2 included), so always package it
+./mvnw -q -Pperf -DskipTests package
+JAR=$(ls target/ems-*.jar | grep -v -e plain -e classes | head -n 1)
+mkdir -p perf/results
+
+echo "=== Starting backend with ${EMPLOYEES} synthetic employees"
+# shellcheck disable=SC2086
+java ${JAVA_OPTS} -jar "${JAR}" --server.port="${PORT}" --spring.profiles.active=perf \
+    --ems.perf.seed.employees="${EMPLOYEES}" > "perf/results/load-${LABEL}-server.log" 2>&1 &
+PID=$!
+trap "kill ${PID} 2>/dev/null || true" EXIT
+
+until curl -sf "http://localhost:${PORT}/actuator/health/readiness" >/dev/null; do
+    kill -0 "${PID}" 2>/dev/null || { echo "Backend exited; see perf/results/load-${LABEL}-server.log"; exit 1; }
+    sleep 1
+done
+
+java perf/LoadTest.java run --base-url "http://localhost:${PORT}" --employees "${EMPLOYEES}" \
+    --duration "${DURATION}" --concurrency "${CONCURRENCY}" --label "${LABEL}" --out "${OUT}" "${EXTRA_ARGS[@]}"
@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+#
+# Startup-time benchmark: plain fat jar vs Spring AOT vs Spring AOT + AppCDS.
+#
+# Builds the backend with the `perf` (H2 on the classpath) and `fast-startup` (AOT classes plus the
+# AppCDS archive in target/fast-startup/) Maven profiles, then starts it RUNS times in each mode against
+# an empty in-memory database (Flyway migrations included) and records:
+#   started_s  - Spring's own "Started BackendApplication in X seconds"
+#   jvm_s      - the "(process running for Y)" figure from the same line, i.e. including JVM startup
+#   ready_ms   - wall clock from launch until /actuator/health/readiness answers 200
+# Results go to perf/results/startup-<commit>.csv, with each mode's median run printed at the end.
+#
+# Usage: perf/startup-benchmark.sh [runs] [extra Spring args...]
+#   e.g. perf/startup-benchmark.sh 10 --spring.threads.virtual.enabled=true
+#
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS="${1:-5}"
+shift $(( $# > 1 ? 1 : $# ))
+EXTRA_ARGS=("$@")
+PORT="${PORT:-8090}"
+JAVA_OPTS="${JAVA_OPTS:--Xmx512m}"
+LABEL="$(git rev-parse --short HEAD 2>/dev/null || echo local)$(git diff --quiet 2>/dev/null || echo -dirty)"
+OUT="perf/results/startup-${LABEL}.csv"
+LOG_DIR="perf/results/startup-${LABEL}-logs"
+
+./mvnw -q -Pperf,fast-startup -DskipTests package
+JAR=$(ls target/ems-*.jar | grep -v -e plain -e classes | head -n 1)
+EXTRACTED="target/fast-startup/$(basename "${JAR}")"
+mkdir -p "${LOG_DIR}"
+echo "mode,run,started_s,jvm_s,ready_ms" > "${OUT}"
+
+now_ms() { date +%s%3N; }
+
+run_once() {
+    local mode="$1" run="$2"; shift 2
+    local log="${LOG_DIR}/${mode}-${run}.log"
+    local start
+    start=$(now_ms)
+    # shellcheck disable=SC2086
+    java ${JAVA_OPTS} "$@" --server.port="${PORT}" --spring.profiles.active=perf \
+        --ems.perf.seed.employees=0 "${EXTRA_ARGS[@]}" > "${log}" 2>&1 &
+    local pid=$!
+    trap "kill ${pid} 2>/dev/null || true" EXIT
+    until curl -sf "http://localhost:${PORT}/actuator/health/readiness" >/dev/null 2>&1; do
+        kill -0 "${pid}" 2>/dev/null || { echo "Backend exited; see ${log}"; exit 1; }
+        sleep 0.02
+    done
+    local ready=$(( $(now_ms) - start ))
+    kill "${pid}"; wait "${pid}" 2>/dev/null || true
+    trap - EXIT
+
+    local started jvm
+    started=$(sed -n 's/.*Started BackendApplication in \([0-9.]*\) seconds.*/\1/p' "${log}" | head -n 1)
+    jvm=$(sed -n 's/.*process running for \([0-9.]*\)).*/\1/p' "${log}" | head -n 1)
+    echo "${mode},${run},${started},${jvm},${ready}" >> "${OUT}"
+    printf '%-8s run %2d: started %ss, jvm %ss, ready %d ms\n' "${mode}" "${run}" "${started}" "${jvm}" "${ready}"
+}
+
+for run in $(seq 1 "${RUNS}"); do
+    run_once jar "${run}" -jar "${JAR}"
+    run_once aot "${run}" -Dspring.aot.enabled=true -jar "${EXTRACTED}"
+    run_once aot-cds "${run}" -XX:SharedArchiveFile=target/fast-startup/application.jsa \
+        -Dspring.aot.enabled=true -jar "${EXTRACTED}"
+done
+
+echo "=== Median run per mode by time to readiness (${RUNS} runs)"
+for mode in jar aot aot-cds; do
+    grep "^${mode}," "${OUT}" | awk -F, '{ print $3, $4, $5 }' | sort -n -k3 | \
+        awk -v mode="${mode}" '{ s[NR]=$1; j[NR]=$2; r[NR]=$3 } END {
+            m = int((NR + 1) / 2)
+            printf "%-8s started %ss, jvm %ss, ready %d ms\n", mode, s[m], j[m], r[m] }'
+done
+echo "Report: ${OUT}"
@@ -0,0 +1,18 @@
+package uk.gitsoft.ems.audit;
+
+import uk.gitsoft.ems.dto.AuditChangeDto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record AuditEvent(Entity entity, long entityId, Action action, String actor,
+                         Map<String, AuditChangeDto> changes, Instant occurredAt) {
+
+    public enum Entity {
+        EMPLOYEE, DEPARTMENT
+    }
+
+    public enum Action {
+        CREATE, UPDATE, DELETE
+    }
+}
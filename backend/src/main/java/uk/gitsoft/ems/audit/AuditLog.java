@@ -0,0 +1,79 @@
+package uk.gitsoft.ems.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.dto.AuditChangeDto;
+import uk.gitsoft.ems.dto.AuditEntryDto;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The audit_events table: batch inserts for the audit writer and keyset reads
+ * of one entity's history.
+ */
+@Component
+public class AuditLog {
+
+    private static final String INSERT_SQL = "insert into audit_events"
+            + " (entity_type, entity_id, action, actor, changes, occurred_at) values (?, ?, ?, ?, ?, ?)";
+    private static final TypeReference<Map<String, AuditChangeDto>> CHANGES = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate newTransaction;
+
+    public AuditLog(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        // Its own transaction even when called from another one's afterCommit
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    void insert(List<AuditEvent> events) {
+        newTransaction.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+                    ps.setString(1, event.entity().name());
+                    ps.setLong(2, event.entityId());
+                    ps.setString(3, event.action().name());
+                    ps.setString(4, event.actor());
+                    ps.setString(5, toJson(event.changes()));
+                    ps.setTimestamp(6, Timestamp.from(event.occurredAt()));
+                }));
+    }
+
+    // Entries with id > after, oldest first
+    public List<AuditEntryDto> read(AuditEvent.Entity entity, long entityId, long after, int limit) {
+        return jdbcTemplate.query(
+                "select id, action, actor, changes, occurred_at from audit_events"
+                        + " where entity_type = ? and entity_id = ? and id > ? order by id limit ?",
+                (rs, rowNum) -> new AuditEntryDto(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getTimestamp(5).toInstant(), fromJson(rs.getString(4))),
+                entity.name(), entityId, after, limit);
+    }
+
+    private String toJson(Map<String, AuditChangeDto> changes) {
+        try {
+            return objectMapper.writeValueAsString(changes);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize audit changes", ex);
+        }
+    }
+
+    private Map<String, AuditChangeDto> fromJson(String changes) {
+        try {
+            return objectMapper.readValue(changes, CHANGES);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unreadable audit changes: " + changes, ex);
+        }
+    }
+}
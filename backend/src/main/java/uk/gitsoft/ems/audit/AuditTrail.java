@@ -0,0 +1,325 @@
+package uk.gitsoft.ems.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import uk.gitsoft.ems.dto.AuditChangeDto;
+import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.tx.AfterCommit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records who changed what for employees and departments without adding an
+ * insert to the request.
+ *
+ * The service write paths report each write with its before and after state;
+ * only the fields that differ are kept. Bulk jobs and imports report a whole
+ * chunk at once. Once the write's transaction commits the
+ * event goes onto a bounded queue, and one background thread takes whatever has
+ * queued up (up to batch-size, waiting at most linger for more) and inserts it
+ * as one JDBC batch. A failed batch is retried with back-off, so a database
+ * outage holds events in the queue rather than losing them.
+ *
+ * When the queue is full, writers wait up to enqueue-timeout for room, which
+ * slows them to the pace of the audit writer; past that the event is inserted
+ * on the caller's thread. On shutdown new events are written inline and the
+ * writer empties the queue before the application context closes.
+ */
+@Component
+public class AuditTrail {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditTrail.class);
+
+    public static final String ACTOR_HEADER = "X-Actor";
+    static final int MAX_ACTOR_LENGTH = 100;
+    private static final long POLL_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final AuditLog auditLog;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutMillis;
+    private final Duration shutdownTimeout;
+    private final Counter written;
+    private final Counter inline;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean closing;
+    private Thread writer;
+
+    public AuditTrail(AuditLog auditLog,
+                      MeterRegistry meterRegistry,
+                      @Value("${ems.audit.queue-capacity:10000}") int queueCapacity,
+                      @Value("${ems.audit.batch-size:500}") int batchSize,
+                      @Value("${ems.audit.linger:50ms}") Duration linger,
+                      @Value("${ems.audit.enqueue-timeout:2s}") Duration enqueueTimeout,
+                      @Value("${ems.audit.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.auditLog = auditLog;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = linger.toNanos();
+        this.enqueueTimeoutMillis = enqueueTimeout.toMillis();
+        this.shutdownTimeout = shutdownTimeout;
+        this.written = events(meterRegistry, "written", "Audit events inserted by the background writer");
+        this.inline = events(meterRegistry, "inline", "Audit events inserted on the caller's thread (queue full or shutting down)");
+        this.failed = events(meterRegistry, "failed", "Audit events that could not be inserted");
+        this.batchSizes = DistributionSummary.builder("ems.audit.batch.size")
+                .description("Audit events per batch insert")
+                .register(meterRegistry);
+        Gauge.builder("ems.audit.queue.depth", queue, BlockingQueue::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("ems.audit.lag", queue, AuditTrail::oldestAgeSeconds)
+                .description("How long the oldest waiting audit event has been queued")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter events(MeterRegistry meterRegistry, String outcome, String description) {
+        return Counter.builder("ems.audit.events")
+                .tag("outcome", outcome)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private static double oldestAgeSeconds(BlockingQueue<AuditEvent> queue) {
+        AuditEvent oldest = queue.peek();
+        return oldest == null ? 0 : Duration.between(oldest.occurredAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    @PostConstruct
+    void start() {
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        closing = true;
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) {
+            log.error("Audit writer did not finish within {}; {} events not written", shutdownTimeout, queue.size());
+        }
+    }
+
+    public void employeeCreated(EmployeeDto employee) {
+        record(AuditEvent.Entity.EMPLOYEE, employee.getId(), AuditEvent.Action.CREATE, null, stateOf(employee));
+    }
+
+    public void employeeUpdated(EmployeeDto before, EmployeeDto after) {
+        record(AuditEvent.Entity.EMPLOYEE, after.getId(), AuditEvent.Action.UPDATE, stateOf(before), stateOf(after));
+    }
+
+    // before is null when the deleted row was not known; the event then only says it was deleted
+    public void employeeDeleted(long employeeId, EmployeeDto before) {
+        record(AuditEvent.Entity.EMPLOYEE, employeeId, AuditEvent.Action.DELETE,
+                before == null ? null : stateOf(before), null);
+    }
+
+    public void departmentCreated(DepartmentDto department) {
+        record(AuditEvent.Entity.DEPARTMENT, department.getId(), AuditEvent.Action.CREATE, null, stateOf(department));
+    }
+
+    public void departmentUpdated(DepartmentDto before, DepartmentDto after) {
+        record(AuditEvent.Entity.DEPARTMENT, after.getId(), AuditEvent.Action.UPDATE, stateOf(before), stateOf(after));
+    }
+
+    public void departmentDeleted(long departmentId, DepartmentDto before) {
+        record(AuditEvent.Entity.DEPARTMENT, departmentId, AuditEvent.Action.DELETE,
+                before == null ? null : stateOf(before), null);
+    }
+
+    /**
+     * Bulk jobs and imports: one event per row of a chunk, published together
+     * once the chunk commits. The actor is passed in because bulk jobs run on a
+     * background thread.
+     */
+    public void employeesCreated(List<EmployeeDto> employees, String actor) {
+        publish(employees.stream()
+                .map(employee -> event(AuditEvent.Entity.EMPLOYEE, employee.getId(), AuditEvent.Action.CREATE,
+                        null, stateOf(employee), actor))
+                .toList());
+    }
+
+    // Rows without a before state are left out
+    public void employeesUpdated(Map<Long, EmployeeDto> before, List<EmployeeDto> after, String actor) {
+        publish(after.stream()
+                .filter(employee -> before.containsKey(employee.getId()))
+                .map(employee -> event(AuditEvent.Entity.EMPLOYEE, employee.getId(), AuditEvent.Action.UPDATE,
+                        stateOf(before.get(employee.getId())), stateOf(employee), actor))
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    public void employeesDeleted(List<EmployeeDto> before, String actor) {
+        publish(before.stream()
+                .map(employee -> event(AuditEvent.Entity.EMPLOYEE, employee.getId(), AuditEvent.Action.DELETE,
+                        stateOf(employee), null, actor))
+                .toList());
+    }
+
+    private static Map<String, Object> stateOf(EmployeeDto employee) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("firstName", employee.getFirstName());
+        state.put("lastName", employee.getLastName());
+        state.put("email", employee.getEmail());
+        state.put("departmentId", employee.getDepartmentId());
+        state.put("managerId", employee.getManagerId());
+        return state;
+    }
+
+    private static Map<String, Object> stateOf(DepartmentDto department) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("departmentName", department.getDepartmentName());
+        state.put("departmentDescription", department.getDepartmentDescription());
+        return state;
+    }
+
+    private void record(AuditEvent.Entity entity, long entityId, AuditEvent.Action action,
+                        Map<String, Object> before, Map<String, Object> after) {
+        AuditEvent event = event(entity, entityId, action, before, after, currentActor());
+        if (event != null) publish(List.of(event));
+    }
+
+    // Null for an update that changed nothing
+    private static AuditEvent event(AuditEvent.Entity entity, long entityId, AuditEvent.Action action,
+                                    Map<String, Object> before, Map<String, Object> after, String actor) {
+        Map<String, AuditChangeDto> changes = diff(before, after);
+        if (action == AuditEvent.Action.UPDATE && changes.isEmpty()) return null;
+        return new AuditEvent(entity, entityId, action, actor, changes, Instant.now());
+    }
+
+    private void publish(List<AuditEvent> events) {
+        if (events.isEmpty()) return;
+        // Only committed writes are history
+        AfterCommit.run(() -> events.forEach(this::enqueue));
+    }
+
+    // Fields in a fixed (alphabetical) order, so equal histories serialize identically
+    private static Map<String, AuditChangeDto> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> from = before == null ? Map.of() : before;
+        Map<String, Object> to = after == null ? Map.of() : after;
+        List<String> fields = new ArrayList<>(before == null ? to.keySet() : from.keySet());
+        fields.sort(null);
+        Map<String, AuditChangeDto> changes = new LinkedHashMap<>();
+        for (String field : fields) {
+            Object old = from.get(field);
+            Object now = to.get(field);
+            if (!Objects.equals(old, now)) changes.put(field, new AuditChangeDto(old, now));
+        }
+        return changes;
+    }
+
+    /**
+     * The X-Actor header (else the client address) of the current request, or
+     * "system" outside one. Bulk jobs capture it when they are submitted.
+     */
+    public static String currentActor() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return "system";
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String actor = request.getHeader(ACTOR_HEADER);
+        if (actor == null || actor.isBlank()) actor = request.getRemoteAddr();
+        actor = actor.trim();
+        return actor.length() > MAX_ACTOR_LENGTH ? actor.substring(0, MAX_ACTOR_LENGTH) : actor;
+    }
+
+    private void enqueue(AuditEvent event) {
+        try {
+            if (!closing && queue.offer(event, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writeInline(event);
+    }
+
+    private void writeInline(AuditEvent event) {
+        try {
+            auditLog.insert(List.of(event));
+            inline.increment();
+        } catch (RuntimeException ex) {
+            failed.increment();
+            log.error("Could not write audit event {}", event, ex);
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                AuditEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing) return;
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits up to the linger time for the batch to fill; never while shutting down
+    private void fill(List<AuditEvent> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long left = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || left <= 0 || closing) return;
+            AuditEvent next = queue.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) throws InterruptedException {
+        long backoff = 100;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                auditLog.insert(batch);
+                written.increment(batch.size());
+                batchSizes.record(batch.size());
+                return;
+            } catch (RuntimeException ex) {
+                // Keep retrying while running; when shutting down, give up after a few tries
+                if (closing && attempt >= 3) {
+                    failed.increment(batch.size());
+                    log.error("Giving up on {} audit events after {} attempts: {}", batch.size(), attempt, batch, ex);
+                    return;
+                }
+                log.warn("Audit batch of {} events failed (attempt {}); retrying in {} ms", batch.size(), attempt, backoff, ex);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package uk.gitsoft.ems.cache;
+
+/**
+ * A response body that has already been serialized, together with its entity tag.
+ * The array is shared between requests and must never be modified.
+ */
+public record CachedJson(byte[] body, String etag) {
+}
@@ -0,0 +1,99 @@
+package uk.gitsoft.ems.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.dto.DepartmentHeadcountDto;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.tx.AfterCommit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Employee count per department, kept in memory so the dashboard reads it in O(1).
+ *
+ * Counts are loaded with one GROUP BY query on first use and then maintained
+ * incrementally: EmployeeServiceImpl, bulk jobs and the import call adjust() after
+ * every write that adds, removes or moves an employee. Inside a transaction the
+ * change is applied once it commits, so a rolled-back write never skews the
+ * counts. A write that commits while a load is running may be missed, and other
+ * instances' writes are not seen, so the counts are reloaded from the database
+ * after a TTL.
+ */
+@Component
+public class DepartmentHeadcounts {
+
+    private record Counts(Map<Long, AtomicLong> byDepartment, AtomicLong unassigned, long loadedAt) {
+    }
+
+    private final EmployeeRepository employeeRepository;
+    private final long ttlNanos;
+
+    private volatile Counts counts;
+
+    public DepartmentHeadcounts(EmployeeRepository employeeRepository,
+                                @Value("${ems.department-stats.ttl:5m}") Duration ttl) {
+        this.employeeRepository = employeeRepository;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public long headcount(Long departmentId) {
+        AtomicLong count = current().byDepartment().get(departmentId);
+        return count == null ? 0 : count.get();
+    }
+
+    public long unassigned() {
+        return current().unassigned().get();
+    }
+
+    /**
+     * Records an employee moving from one department to another; null stands for
+     * "no department", so (null, id) is a create and (id, null) a delete.
+     */
+    public void adjust(Long fromDepartmentId, Long toDepartmentId) {
+        if (Objects.equals(fromDepartmentId, toDepartmentId)) return;
+        AfterCommit.run(() -> {
+            Counts current = counts;
+            // Nothing loaded yet: the next load reads the committed row anyway
+            if (current == null) return;
+            counter(current, fromDepartmentId).decrementAndGet();
+            counter(current, toDepartmentId).incrementAndGet();
+        });
+    }
+
+    // Deferred too: a reload before the commit would cache the old counts for a whole TTL
+    public void invalidate() {
+        AfterCommit.run(() -> counts = null);
+    }
+
+    private static AtomicLong counter(Counts current, Long departmentId) {
+        if (departmentId == null) return current.unassigned();
+        return current.byDepartment().computeIfAbsent(departmentId, id -> new AtomicLong());
+    }
+
+    private Counts current() {
+        Counts current = counts;
+        if (current != null && System.nanoTime() - current.loadedAt() <= ttlNanos) {
+            return current;
+        }
+        return reload();
+    }
+
+    private synchronized Counts reload() {
+        Counts current = counts;
+        if (current != null && System.nanoTime() - current.loadedAt() <= ttlNanos) {
+            return current;
+        }
+        Map<Long, AtomicLong> byDepartment = new ConcurrentHashMap<>();
+        for (DepartmentHeadcountDto row : employeeRepository.countByDepartment()) {
+            byDepartment.put(row.getDepartmentId(), new AtomicLong(row.getHeadcount()));
+        }
+        Counts loaded = new Counts(byDepartment, new AtomicLong(employeeRepository.countByDepartmentIsNull()),
+                System.nanoTime());
+        counts = loaded;
+        return loaded;
+    }
+}
@@ -0,0 +1,175 @@
+package uk.gitsoft.ems.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.config.ReadRouting;
+import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.mapper.DepartmentMapper;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.tx.AfterCommit;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copy-on-write, in-memory snapshot of the departments table.
+ *
+ * Departments are small and rarely change, so the whole table is held as one
+ * immutable snapshot: an id lookup map, the ordered list and the list already
+ * serialized to JSON with its ETag. Readers never lock; a write through DepartmentServiceImpl
+ * calls invalidate() and the next reader loads a fresh snapshot. A TTL bounds
+ * staleness for changes made by other instances, and an id lookup that misses
+ * the snapshot is checked against the database before it is reported missing. Returned DTOs are shared and
+ * must be treated as read-only.
+ */
+@Component
+public class DepartmentSnapshotCache {
+
+    private record Snapshot(Map<Long, DepartmentDto> byId, List<DepartmentDto> all, CachedJson json, long loadedAt) {
+    }
+
+    private final DepartmentRepository departmentRepository;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Bumped on every invalidation so a load that raced with a write is not published
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public DepartmentSnapshotCache(DepartmentRepository departmentRepository,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ems.department-cache.ttl:5m}") Duration ttl) {
+        this.departmentRepository = departmentRepository;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = Counter.builder("ems.department.cache.requests")
+                .tag("result", "hit")
+                .description("Department snapshot lookups served from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ems.department.cache.requests")
+                .tag("result", "miss")
+                .description("Department snapshot lookups that had to load from the database")
+                .register(meterRegistry);
+        Gauge.builder("ems.department.cache.size", this, cache -> {
+                    Snapshot current = cache.snapshot;
+                    return current == null ? 0 : current.all().size();
+                })
+                .description("Departments held in the current snapshot")
+                .register(meterRegistry);
+    }
+
+    public Optional<DepartmentDto> find(Long departmentId) {
+        if (departmentId == null) return Optional.empty();
+        DepartmentDto department = current().byId().get(departmentId);
+        return department != null ? Optional.of(department) : findMissing(departmentId);
+    }
+
+    public boolean exists(Long departmentId) {
+        return find(departmentId).isPresent();
+    }
+
+    public List<DepartmentDto> getAll() {
+        return current().all();
+    }
+
+    public CachedJson getAllJson() {
+        return current().json();
+    }
+
+    public void invalidate() {
+        drop();
+        // Inside a transaction a reload could still read the old rows; drop whatever it cached once the write commits
+        AfterCommit.run(this::drop);
+    }
+
+    private void drop() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && !isExpired(current)) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        return reload();
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        if (current != null && !isExpired(current)) {
+            return current;
+        }
+        long loadGeneration = generation.get();
+        // From the primary even with a replica: the snapshot validates department ids on writes
+        List<DepartmentDto> all = ReadRouting.onPrimary(() -> departmentRepository.findAll()).stream()
+                .map(DepartmentMapper::mapToDepartmentDto)
+                .sorted(Comparator.comparing(DepartmentDto::getId))
+                .toList();
+        Map<Long, DepartmentDto> byId = new LinkedHashMap<>();
+        all.forEach(department -> byId.put(department.getId(), department));
+
+        CachedJson json = new CachedJson(serialize(all), etagOf(all));
+        Snapshot loaded = new Snapshot(Map.copyOf(byId), all, json, System.nanoTime());
+        if (generation.get() == loadGeneration) {
+            snapshot = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * An id the snapshot does not have may still be a department created since it
+     * was loaded (e.g. by another instance), so ask the primary for that one row
+     * before reporting it missing. A hit means the snapshot is behind: drop it.
+     */
+    private Optional<DepartmentDto> findMissing(Long departmentId) {
+        Optional<DepartmentDto> department = ReadRouting.onPrimary(() -> departmentRepository.findById(departmentId))
+                .map(DepartmentMapper::mapToDepartmentDto);
+        if (department.isPresent()) {
+            drop();
+        }
+        return department;
+    }
+
+    private boolean isExpired(Snapshot current) {
+        return System.nanoTime() - current.loadedAt() > ttlNanos;
+    }
+
+    /**
+     * Collection tag from count, sum of versions and highest id: an insert raises the
+     * count and the highest id, a delete lowers the count and any update raises the sum.
+     * (The highest version alone would miss updates to rows below it.)
+     */
+    private static String etagOf(List<DepartmentDto> departments) {
+        long versions = 0;
+        long maxId = 0;
+        for (DepartmentDto department : departments) {
+            versions += department.getVersion() == null ? 0 : department.getVersion();
+            maxId = Math.max(maxId, department.getId());
+        }
+        return "\"d" + departments.size() + "-" + versions + "-" + maxId + "\"";
+    }
+
+    private byte[] serialize(List<DepartmentDto> departments) {
+        try {
+            return objectMapper.writeValueAsBytes(departments);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize department snapshot", ex);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package uk.gitsoft.ems.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import uk.gitsoft.ems.config.DatabaseCircuitBreaker;
+import uk.gitsoft.ems.exception.ResourceNotFoundException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Last successful answer of the hot reads (employee by id, list pages, the
+ * department list), kept so they can still be answered while the database is
+ * unreachable.
+ *
+ * Every successful read replaces its entry. When a read fails because the
+ * database is down or timed out (including the fast failures of an open
+ * circuit), the entry is returned instead, if it is younger than max-stale, and
+ * the request is marked so StaleResponseHeaderAdvice adds Age and X-Stale. Only
+ * without an entry does the 503 reach the client. Entries are bounded by the
+ * rows they hold (max-rows) and evicted oldest-first. When the circuit closes,
+ * the entries served stale during the outage are re-read in the background.
+ */
+@Component
+public class LastKnownGoodCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LastKnownGoodCache.class);
+
+    public static final String STALE_SINCE_ATTRIBUTE = LastKnownGoodCache.class.getName() + ".staleSince";
+
+    private record Entry(Object value, Supplier<?> loader, ToIntFunction<Object> rowsOf, int rows,
+                         Instant storedAt, boolean servedStale) {
+
+        static Entry of(Object value, Supplier<?> loader, ToIntFunction<Object> rowsOf) {
+            return new Entry(value, loader, rowsOf, Math.max(1, rowsOf.applyAsInt(value)), Instant.now(), false);
+        }
+
+        Entry asServedStale() {
+            return new Entry(value, loader, rowsOf, rows, storedAt, true);
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Insertion order for eviction; a key may appear more than once after being re-added
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rows = new AtomicLong();
+    private final long maxRows;
+    private final Duration maxStale;
+    private final DatabaseCircuitBreaker circuitBreaker;
+    private final ExecutorService revalidator;
+    private final Counter servedStale;
+    private final Counter revalidated;
+
+    public LastKnownGoodCache(DatabaseCircuitBreaker circuitBreaker,
+                              MeterRegistry meterRegistry,
+                              @Value("${ems.db.stale-cache.max-rows:100000}") long maxRows,
+                              @Value("${ems.db.stale-cache.max-stale:1h}") Duration maxStale) {
+        this.circuitBreaker = circuitBreaker;
+        this.maxRows = maxRows;
+        this.maxStale = maxStale;
+        this.revalidator = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "stale-cache-revalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.servedStale = Counter.builder("ems.db.stale-cache.served")
+                .description("Reads answered from the last known good copy because the database failed")
+                .register(meterRegistry);
+        this.revalidated = Counter.builder("ems.db.stale-cache.revalidated")
+                .description("Stale entries re-read after the database recovered")
+                .register(meterRegistry);
+        Gauge.builder("ems.db.stale-cache.rows", rows, AtomicLong::get)
+                .description("Rows held for stale serving")
+                .register(meterRegistry);
+        circuitBreaker.onRecovery(() -> revalidator.execute(this::revalidate));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        revalidator.shutdownNow();
+    }
+
+    // For single-row values
+    public <T> T read(String key, Supplier<T> load) {
+        return read(key, load, value -> 1);
+    }
+
+    public <T> T read(String key, Supplier<T> load, ToIntFunction<T> rowsOf) {
+        T value;
+        try {
+            value = load.get();
+        } catch (ResourceNotFoundException ex) {
+            evict(key);
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (!isDatabaseUnavailable(ex)) throw ex;
+            // Timeouts happen on a connection the breaker already counted as good
+            if (ex instanceof QueryTimeoutException) circuitBreaker.recordFailure();
+            return this.<T>stale(key).orElseThrow(() -> ex);
+        }
+        @SuppressWarnings("unchecked")
+        ToIntFunction<Object> weigher = (ToIntFunction<Object>) rowsOf;
+        store(key, Entry.of(value, load, weigher));
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<T> stale(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return Optional.empty();
+        if (entry.storedAt().plus(maxStale).isBefore(Instant.now())) {
+            evict(key);
+            return Optional.empty();
+        }
+        if (!entry.servedStale()) entries.replace(key, entry, entry.asServedStale());
+        servedStale.increment();
+        markStale(entry.storedAt());
+        return Optional.of((T) entry.value());
+    }
+
+    // The oldest copy used decides the response's Age
+    private static void markStale(Instant storedAt) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) return;
+        Object since = request.getAttribute(STALE_SINCE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (since instanceof Instant earlier && earlier.isBefore(storedAt)) return;
+        request.setAttribute(STALE_SINCE_ATTRIBUTE, storedAt, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private void store(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous == null) {
+            order.add(key);
+            rows.addAndGet(entry.rows());
+        } else {
+            rows.addAndGet(entry.rows() - previous.rows());
+        }
+        while (rows.get() > maxRows) {
+            String oldest = order.poll();
+            if (oldest == null) return;
+            evict(oldest);
+        }
+    }
+
+    private void evict(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) rows.addAndGet(-removed.rows());
+    }
+
+    private void revalidate() {
+        int refreshed = 0;
+        for (Map.Entry<String, Entry> stale : entries.entrySet()) {
+            Entry entry = stale.getValue();
+            if (!entry.servedStale()) continue;
+            try {
+                Entry fresh = Entry.of(entry.loader().get(), entry.loader(), entry.rowsOf());
+                if (entries.replace(stale.getKey(), entry, fresh)) {
+                    rows.addAndGet(fresh.rows() - entry.rows());
+                    refreshed++;
+                    revalidated.increment();
+                }
+            } catch (RuntimeException ex) {
+                if (isDatabaseUnavailable(ex)) {
+                    // Down again; whatever is left is re-read after the next recovery
+                    log.debug("Revalidation stopped after {} entries: {}", refreshed, ex.getMessage());
+                    return;
+                }
+                // Gone (deleted) or no longer valid: drop it rather than serve it again
+                if (entries.remove(stale.getKey(), entry)) rows.addAndGet(-entry.rows());
+            }
+        }
+        log.info("Revalidated {} entries served stale while the database was unavailable", refreshed);
+    }
+
+    static boolean isDatabaseUnavailable(Throwable ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof DataAccessResourceFailureException
+                || ex instanceof CannotCreateTransactionException;
+    }
+}
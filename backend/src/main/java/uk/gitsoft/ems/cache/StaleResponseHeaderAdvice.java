@@ -0,0 +1,42 @@
+package uk.gitsoft.ems.cache;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Marks responses answered from LastKnownGoodCache: X-Stale: true, and Age with
+ * the seconds since the copy was read from the database.
+ */
+@ControllerAdvice
+public class StaleResponseHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STALE_HEADER = "X-Stale";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(LastKnownGoodCache.STALE_SINCE_ATTRIBUTE) instanceof Instant since) {
+            response.getHeaders().set(STALE_HEADER, "true");
+            response.getHeaders().set(HttpHeaders.AGE,
+                    String.valueOf(Math.max(0, Duration.between(since, Instant.now()).toSeconds())));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,194 @@
+package uk.gitsoft.ems.changes;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.gitsoft.ems.dto.EmployeeChangesDto;
+import uk.gitsoft.ems.exception.ChangeTokenExpiredException;
+import uk.gitsoft.ems.service.EmployeeChangeService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes employee changes to open Server-Sent Events streams.
+ *
+ * One background thread reads the change feed once per wake-up and fans the
+ * result out to every subscriber, so the database cost does not grow with the
+ * number of open tabs. It wakes after every local write commits, and polls every
+ * poll interval while anyone is listening to pick up other instances' writes.
+ * Each event is one "changes" page whose id is its nextToken; a browser that
+ * reconnects sends it back as Last-Event-ID and is caught up from the feed before
+ * joining the live stream. A client too far behind gets a "reset" event and
+ * should reload the full list.
+ */
+@Component
+public class EmployeeChangeBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeChangeBroadcaster.class);
+
+    private static final int PAGE_SIZE = 500;
+
+    private record Subscriber(SseEmitter emitter, Long lastEventId) {
+    }
+
+    private final EmployeeChangeService changeService;
+    private final Duration settle;
+    private final long pollIntervalMillis;
+    private final long timeoutMillis;
+    private final List<SseEmitter> live = new CopyOnWriteArrayList<>();
+    private final Queue<Subscriber> joining = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Boolean> wakeups = new ArrayBlockingQueue<>(1);
+
+    private volatile Thread worker;
+    private long cursor = -1;
+
+    public EmployeeChangeBroadcaster(EmployeeChangeService changeService,
+                                     EmployeeChangeLog changeLog,
+                                     @Value("${ems.changes.poll-interval:5s}") Duration pollInterval,
+                                     @Value("${ems.changes.sse-timeout:30m}") Duration timeout) {
+        this.changeService = changeService;
+        this.settle = changeLog.settle();
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> live.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> live.remove(emitter));
+        joining.add(new Subscriber(emitter, lastEventId));
+        startWorker();
+        wake();
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChangesRecorded(EmployeeChangeLog.Recorded event) {
+        if (worker != null) wake();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        Thread current = worker;
+        if (current != null) current.interrupt();
+        live.forEach(SseEmitter::complete);
+    }
+
+    private void wake() {
+        wakeups.offer(Boolean.TRUE);
+    }
+
+    private synchronized void startWorker() {
+        if (worker != null) return;
+        Thread thread = new Thread(this::run, "employee-change-broadcaster");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Boolean woken = wakeups.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                if (live.isEmpty() && joining.isEmpty()) continue;
+                // Let a just-committed change leave the settle window so this round sends it
+                if (woken != null && !settle.isZero()) Thread.sleep(settle.toMillis());
+                try {
+                    deliver(woken == null);
+                } catch (RuntimeException ex) {
+                    log.warn("Employee change broadcast failed; retrying on the next wake-up", ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(boolean heartbeat) {
+        // Nobody was listening: start from the current position instead of replaying the gap
+        if (cursor < 0 || live.isEmpty()) {
+            cursor = changeService.getChanges(null, null).getNextToken();
+        }
+        Subscriber subscriber;
+        while ((subscriber = joining.poll()) != null) {
+            join(subscriber);
+        }
+        EmployeeChangesDto page;
+        boolean sent = false;
+        do {
+            page = changeService.getChanges(cursor, PAGE_SIZE);
+            if (page.getUpserted().isEmpty() && page.getDeleted().isEmpty()) break;
+            for (SseEmitter emitter : live) {
+                send(emitter, page);
+            }
+            cursor = page.getNextToken();
+            sent = true;
+        } while (page.isHasMore());
+        // Comments keep idle connections open through proxies and reveal clients that went away
+        if (heartbeat && !sent) {
+            for (SseEmitter emitter : live) {
+                try {
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                } catch (IOException | IllegalStateException ex) {
+                    drop(emitter);
+                }
+            }
+        }
+    }
+
+    // Replays what the subscriber missed up to the shared cursor, then adds it to the live set
+    private void join(Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter();
+        long position = subscriber.lastEventId() == null ? cursor : subscriber.lastEventId();
+        try {
+            // Pages may run past the cursor; resending those changes live is harmless
+            while (position < cursor) {
+                EmployeeChangesDto page = changeService.getChanges(position, PAGE_SIZE);
+                if (!page.getUpserted().isEmpty() || !page.getDeleted().isEmpty()) {
+                    if (!send(emitter, page)) return;
+                }
+                if (!page.isHasMore()) break;
+                position = page.getNextToken();
+            }
+            emitter.send(SseEmitter.event().name("ready").id(Long.toString(cursor)).data(cursor));
+            live.add(emitter);
+        } catch (ChangeTokenExpiredException ex) {
+            try {
+                emitter.send(SseEmitter.event().name("reset").id(Long.toString(cursor)).data(cursor));
+                live.add(emitter);
+            } catch (IOException | IllegalStateException sendEx) {
+                drop(emitter);
+            }
+        } catch (IOException | IllegalStateException ex) {
+            drop(emitter);
+        }
+    }
+
+    private boolean send(SseEmitter emitter, EmployeeChangesDto page) {
+        try {
+            emitter.send(SseEmitter.event().name("changes").id(Long.toString(page.getNextToken())).data(page));
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            drop(emitter);
+            return false;
+        }
+    }
+
+    private void drop(SseEmitter emitter) {
+        live.remove(emitter);
+        emitter.completeWithError(new IOException("Subscriber went away"));
+    }
+}
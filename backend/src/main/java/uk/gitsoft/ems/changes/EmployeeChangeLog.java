@@ -0,0 +1,125 @@
+package uk.gitsoft.ems.changes;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.entity.EmployeeChange;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only log of employee writes (employee_changes), the source of the
+ * delta-sync feed and the SSE stream.
+ *
+ * Every write path records its change with the same connection and transaction
+ * as the write itself, so a change is visible exactly when the write is. The log
+ * id is the change token. Ids are handed out at insert time, not at commit, so a
+ * slow transaction can commit a lower id after a higher one is already visible;
+ * readers therefore only look at tokens older than the settle window, which is
+ * far longer than any write transaction here.
+ */
+@Component
+public class EmployeeChangeLog {
+
+    public record Change(long token, long employeeId, EmployeeChange.Type type) {
+    }
+
+    public record Bounds(long oldest, long newest) {
+    }
+
+    // Published after every recorded batch; listeners run once the write has committed
+    public record Recorded() {
+    }
+
+    private static final String INSERT_SQL =
+            "insert into employee_changes (employee_id, change_type, changed_at) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration settle;
+
+    public EmployeeChangeLog(JdbcTemplate jdbcTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${ems.changes.settle:500ms}") Duration settle) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.settle = settle;
+    }
+
+    public Duration settle() {
+        return settle;
+    }
+
+    public void recordUpsert(long employeeId) {
+        record(EmployeeChange.Type.UPSERT, List.of(employeeId));
+    }
+
+    public void recordDelete(long employeeId) {
+        record(EmployeeChange.Type.DELETE, List.of(employeeId));
+    }
+
+    public void recordUpserts(Collection<Long> employeeIds) {
+        record(EmployeeChange.Type.UPSERT, employeeIds);
+    }
+
+    public void recordDeletes(Collection<Long> employeeIds) {
+        record(EmployeeChange.Type.DELETE, employeeIds);
+    }
+
+    private void record(EmployeeChange.Type type, Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) return;
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, employeeIds, employeeIds.size(), (ps, employeeId) -> {
+            ps.setLong(1, employeeId);
+            ps.setString(2, type.name());
+            ps.setTimestamp(3, now);
+        });
+        eventPublisher.publishEvent(new Recorded());
+    }
+
+    /**
+     * The newest token every change up to which is settled: one below the oldest
+     * change still inside the settle window, or the newest change if there is none.
+     * 0 when the log is empty.
+     */
+    public long latestToken() {
+        Long firstUnsettled = jdbcTemplate.queryForObject(
+                "select min(id) from employee_changes where changed_at > ?", Long.class,
+                Timestamp.from(Instant.now().minus(settle)));
+        if (firstUnsettled != null) {
+            return firstUnsettled - 1;
+        }
+        Long latest = jdbcTemplate.queryForObject("select max(id) from employee_changes", Long.class);
+        return latest == null ? 0 : latest;
+    }
+
+    // Oldest and newest token still in the log, settled or not; both 0 when it is empty
+    public Bounds bounds() {
+        return jdbcTemplate.queryForObject("select min(id), max(id) from employee_changes",
+                (rs, rowNum) -> new Bounds(rs.getLong(1), rs.getLong(2)));
+    }
+
+    // Changes with since < token <= upTo, oldest first
+    public List<Change> read(long since, long upTo, int limit) {
+        return jdbcTemplate.query(
+                "select id, employee_id, change_type from employee_changes where id > ? and id <= ? order by id limit ?",
+                (rs, rowNum) -> new Change(rs.getLong(1), rs.getLong(2), EmployeeChange.Type.valueOf(rs.getString(3))),
+                since, upTo, limit);
+    }
+
+    /**
+     * Deletes changes older than the cutoff. The newest change is always kept so
+     * an idle log still proves that nothing happened since a client's token.
+     */
+    public int prune(Instant cutoff) {
+        Long latest = jdbcTemplate.queryForObject("select max(id) from employee_changes", Long.class);
+        if (latest == null) return 0;
+        return jdbcTemplate.update("delete from employee_changes where changed_at < ? and id < ?",
+                Timestamp.from(cutoff), latest);
+    }
+}
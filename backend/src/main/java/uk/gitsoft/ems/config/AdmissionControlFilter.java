@@ -0,0 +1,237 @@
+package uk.gitsoft.ems.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Sheds load at the door instead of letting it queue in Tomcat.
+ *
+ * - Each client (remote address; behind a proxy set server.forward-headers-strategy)
+ *   gets a token bucket per route class, so lookups by id, ordinary calls and the
+ *   expensive list, export and bulk routes have separate quotas. At most maxClients
+ *   buckets are kept per route class; the least recently seen client's goes first.
+ * - At most maxConcurrent API requests run at once, by default the Hikari pool
+ *   size. Up to maxWaiting more wait for queueTimeout; the rest are turned away
+ *   at once. An async request (export) holds its slot until it completes; the
+ *   change stream holds none, as it is idle almost all of the time.
+ * - A rejected request gets 429 with Retry-After and never reaches a controller.
+ */
+class AdmissionControlFilter extends OncePerRequestFilter {
+
+    enum RouteClass {
+        CHEAP, STANDARD, EXPENSIVE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    record Quota(double perSecond, int burst) {
+    }
+
+    private static final Pattern BY_ID = Pattern.compile("/api/(employees|departments)/\\d+");
+    private static final Pattern JOB = Pattern.compile("/api/employees/jobs/[^/]+");
+    private static final String STREAM = "/api/employees/changes/stream";
+
+    private final Map<RouteClass, Quota> quotas;
+    private final Map<RouteClass, Map<String, TokenBucket>> buckets = new EnumMap<>(RouteClass.class);
+    private final Semaphore slots;
+    private final int maxWaiting;
+    private final long queueTimeoutNanos;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    AdmissionControlFilter(Map<RouteClass, Quota> quotas, int maxConcurrent, int maxWaiting, Duration queueTimeout,
+                           int maxClients, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.quotas = Map.copyOf(quotas);
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.maxWaiting = maxWaiting;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        for (RouteClass routeClass : RouteClass.values()) {
+            buckets.put(routeClass, leastRecentlyUsed(maxClients));
+        }
+        Gauge.builder("ems.admission.in-flight", slots, s -> maxConcurrent - s.availablePermits())
+                .description("API requests currently admitted")
+                .register(meterRegistry);
+        Gauge.builder("ems.admission.waiting", slots, Semaphore::getQueueLength)
+                .description("API requests waiting for a concurrency slot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Preflights are answered by the CORS mapping and must not be refused without CORS headers
+        return !path(request).startsWith("/api/") || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        RouteClass routeClass = classify(request, path);
+
+        long waitNanos = bucket(routeClass, request.getRemoteAddr()).tryTake(System.nanoTime());
+        if (waitNanos > 0) {
+            reject(request, response, routeClass, "rate", TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1,
+                    "Too many requests. Please slow down.");
+            return;
+        }
+        if (path.equals(STREAM)) {
+            count(routeClass, "admitted", "none");
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!acquireSlot()) {
+            reject(request, response, routeClass, "concurrency", 1, "The service is busy. Please retry shortly.");
+            return;
+        }
+        count(routeClass, "admitted", "none");
+        Runnable release = releaseOnce();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    static RouteClass classify(HttpServletRequest request, String path) {
+        String method = request.getMethod();
+        boolean read = HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+        if (read && (BY_ID.matcher(path).matches() || JOB.matcher(path).matches() || path.equals("/api/departments"))) {
+            return RouteClass.CHEAP;
+        }
+        // A multi-get (?ids=) is one bounded IN query, not a list scan
+        if (read && path.equals("/api/employees") && request.getParameter("ids") == null) {
+            return RouteClass.EXPENSIVE;
+        }
+        if (read && path.equals("/api/employees/export")) {
+            return RouteClass.EXPENSIVE;
+        }
+        if (HttpMethod.POST.matches(method) && (path.equals("/api/employees/batch") || path.equals("/api/employees/jobs"))) {
+            return RouteClass.EXPENSIVE;
+        }
+        return RouteClass.STANDARD;
+    }
+
+    private TokenBucket bucket(RouteClass routeClass, String client) {
+        Quota quota = quotas.get(routeClass);
+        return buckets.get(routeClass).computeIfAbsent(client,
+                key -> new TokenBucket(quota.perSecond(), quota.burst(), System.nanoTime()));
+    }
+
+    /**
+     * Buckets in access order, capped at maxClients: a new client pushes out the one
+     * seen least recently, so however many addresses turn up the map stays bounded.
+     */
+    private static Map<String, TokenBucket> leastRecentlyUsed(int maxClients) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxClients;
+            }
+        });
+    }
+
+    private boolean acquireSlot() {
+        if (slots.tryAcquire()) return true;
+        if (slots.getQueueLength() >= maxWaiting) return false;
+        try {
+            return slots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) slots.release();
+        };
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RouteClass routeClass,
+                        String reason, long retryAfterSeconds, String message) throws IOException {
+        count(routeClass, "rejected", reason);
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "timestamp", Instant.now().toString(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", message,
+                "path", request.getRequestURI()
+        ));
+    }
+
+    private void count(RouteClass routeClass, String outcome, String reason) {
+        Counter.builder("ems.admission.requests")
+                .description("API requests admitted or rejected by admission control")
+                .tag("route", routeClass.tag())
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // The slot stays with the request
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gitsoft.ems.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Puts the database circuit breaker in front of a connection pool: while the
+ * circuit is open, getConnection fails immediately (and the request is answered
+ * with a 503 or a stale copy) rather than queueing for the pool's connection
+ * timeout. Every real attempt reports its outcome to the breaker.
+ */
+public class CircuitBreakingDataSource extends DelegatingDataSource {
+
+    private final DatabaseCircuitBreaker circuitBreaker;
+
+    public CircuitBreakingDataSource(DataSource target, DatabaseCircuitBreaker circuitBreaker) {
+        super(target);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return reported(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return reported(() -> super.getConnection(username, password));
+    }
+
+    private void acquire() throws SQLException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new SQLTransientConnectionException("Database circuit breaker is open");
+        }
+    }
+
+    private Connection reported(ConnectionSupplier connect) throws SQLException {
+        Connection connection;
+        try {
+            connection = connect.get();
+        } catch (SQLException | RuntimeException ex) {
+            circuitBreaker.recordFailure();
+            throw ex;
+        }
+        circuitBreaker.recordSuccess();
+        return connection;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
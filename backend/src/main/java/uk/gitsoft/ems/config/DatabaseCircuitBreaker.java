@@ -0,0 +1,145 @@
+package uk.gitsoft.ems.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Circuit breaker for the primary database.
+ *
+ * Outcomes of connection requests are kept in a window of the last window-size
+ * calls. Once at least minimum-calls are in it and the share of failures reaches
+ * failure-rate, the circuit opens: for open-duration every connection request
+ * fails at once instead of waiting out the pool's connection timeout, so request
+ * threads are not tied up by a database that is down. After that the next
+ * request is let through as a trial; if it gets a connection the circuit closes
+ * and the recovery listeners run, otherwise it opens again.
+ */
+public class DatabaseCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseCircuitBreaker.class);
+
+    public enum State {CLOSED, HALF_OPEN, OPEN}
+
+    private final boolean[] failures;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final Counter rejected;
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failed;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public DatabaseCircuitBreaker(int windowSize, int minimumCalls, double failureRate, Duration openDuration,
+                                  MeterRegistry meterRegistry) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Circuit breaker needs 1 <= minimum-calls <= window-size");
+        }
+        this.failures = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRate = failureRate;
+        this.openNanos = openDuration.toNanos();
+        this.rejected = Counter.builder("ems.db.circuit.rejected")
+                .description("Database connection requests refused while the circuit was open")
+                .register(meterRegistry);
+        Gauge.builder("ems.db.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Database circuit state: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    // Runs (on the thread that closed the circuit) each time the database comes back
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    // False when the call must not reach the database; the caller then fails fast
+    synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) return true;
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void recordSuccess() {
+        boolean recovered;
+        synchronized (this) {
+            recovered = state == State.HALF_OPEN;
+            if (recovered) {
+                state = State.CLOSED;
+                trialInFlight = false;
+                resetWindow();
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        }
+        if (recovered) {
+            log.info("Database reachable again; circuit closed");
+            recoveryListeners.forEach(Runnable::run);
+        }
+    }
+
+    // Also for failures the data source cannot see, such as statement timeouts
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.OPEN) return;
+        record(true);
+        if (recorded >= minimumCalls && failed >= failureRate * recorded) {
+            log.warn("{} of the last {} database calls failed; opening the circuit for {} ms",
+                    failed, recorded, openNanos / 1_000_000);
+            open();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failures.length) {
+            if (failures[next]) failed--;
+        } else {
+            recorded++;
+        }
+        failures[next] = failure;
+        if (failure) failed++;
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        trialInFlight = false;
+        openUntil = System.nanoTime() + openNanos;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        next = 0;
+        failed = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gitsoft.ems.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Wraps the primary connection pool in the database circuit breaker. The
+ * read-only replica pool is left alone: its failures are already handled by
+ * falling back to the primary.
+ */
+@Configuration
+public class DatabaseResilienceConfig {
+
+    @Bean
+    DatabaseCircuitBreaker databaseCircuitBreaker(@Value("${ems.db.circuit.window-size:20}") int windowSize,
+                                                  @Value("${ems.db.circuit.minimum-calls:10}") int minimumCalls,
+                                                  @Value("${ems.db.circuit.failure-rate:0.5}") double failureRate,
+                                                  @Value("${ems.db.circuit.open-duration:5s}") Duration openDuration,
+                                                  MeterRegistry meterRegistry) {
+        return new DatabaseCircuitBreaker(windowSize, minimumCalls, failureRate, openDuration, meterRegistry);
+    }
+
+    // Static so the post-processor does not force early creation of this configuration
+    @Bean
+    static BeanPostProcessor circuitBreakerPostProcessor(ObjectProvider<DatabaseCircuitBreaker> circuitBreaker) {
+        return new CircuitBreakerPostProcessor(circuitBreaker);
+    }
+
+    // Runs before the virtual-thread connection limiter, which then wraps the breaker, and before
+    // the statement counter, which wraps whatever the application DataSource has become
+    private record CircuitBreakerPostProcessor(ObjectProvider<DatabaseCircuitBreaker> circuitBreaker)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource pool && !pool.isReadOnly()) {
+                return new CircuitBreakingDataSource(pool, circuitBreaker.getObject());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 2;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package uk.gitsoft.ems.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    // The AppCDS training run of the fast-startup build only loads classes and has no database.
+    // A property check rather than spring.flyway.enabled, which AOT fixes at build time.
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${ems.startup.training-run:false}") boolean trainingRun) {
+        return flyway -> {
+            if (!trainingRun) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gitsoft.ems.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins read-only work on the current thread to the primary database.
+ *
+ * With a replica configured, read-only transactions normally run there. Code
+ * that must see its own or other requests' latest writes (read-your-writes, the
+ * in-memory snapshots that validate writes) wraps itself in onPrimary. It has
+ * to be entered before the transaction takes its connection: work that joins a
+ * read-only transaction already running on the replica stays there. Without a
+ * replica this has no effect.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean pinned = pin();
+        try {
+            return work.get();
+        } finally {
+            if (pinned) unpin();
+        }
+    }
+
+    public static void onPrimary(Runnable work) {
+        onPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // True if this call pinned the thread, in which case the caller must unpin it
+    static boolean pin() {
+        if (Boolean.TRUE.equals(PRIMARY.get())) return false;
+        PRIMARY.set(Boolean.TRUE);
+        return true;
+    }
+
+    static void unpin() {
+        PRIMARY.remove();
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+}
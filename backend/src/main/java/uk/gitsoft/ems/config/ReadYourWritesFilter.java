@@ -0,0 +1,89 @@
+package uk.gitsoft.ems.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes on top of the replica routing.
+ *
+ * A write request stamps the client with a cookie holding the time of the
+ * write. Later reads from that client run on the primary while the write may
+ * not have reached the replica yet, that is while it is younger than the
+ * current replica lag plus a safety margin; after that they go back to the
+ * replica. Clients that do not send cookies (cross-origin calls without
+ * credentials) only get the replica's eventual consistency.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "EMS_LAST_WRITE";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final long marginMillis;
+    private final int cookieMaxAgeSeconds;
+
+    ReadYourWritesFilter(ReplicaLagMonitor lagMonitor, Duration margin, Duration maxLag) {
+        this.lagMonitor = lagMonitor;
+        this.marginMillis = margin.toMillis();
+        // Past max-lag the replica is out of rotation anyway, so the cookie has nothing left to do
+        this.cookieMaxAgeSeconds = (int) Math.max(1, maxLag.plus(margin).toSeconds());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!isRead(request)) {
+            // Set before the body is written; a failed write merely pins the client for a moment
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(System.currentTimeMillis()));
+            cookie.setPath("/api");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(cookieMaxAgeSeconds);
+            response.addCookie(cookie);
+            chain.doFilter(request, response);
+            return;
+        }
+        Long lastWrite = lastWrite(request);
+        if (lastWrite == null || System.currentTimeMillis() - lastWrite > lagMonitor.lagMillis() + marginMillis) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean pinned = ReadRouting.pin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (pinned) ReadRouting.unpin();
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static Long lastWrite(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
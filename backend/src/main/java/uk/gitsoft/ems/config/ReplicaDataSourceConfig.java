@@ -0,0 +1,92 @@
+package uk.gitsoft.ems.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Read/write splitting, active once ems.datasource.replica.url is set.
+ *
+ * The application DataSource becomes a LazyConnectionDataSourceProxy over the
+ * primary pool: a transaction marked @Transactional(readOnly = true) flags its
+ * connection read-only before the first statement, and the proxy then takes the
+ * physical connection from the replica side instead. The replica side falls
+ * back to the primary when the thread is pinned (ReadRouting, read-your-writes)
+ * or the replica is lagging or unreachable. Everything else, including plain
+ * JDBC and non-transactional repository queries, stays on the primary. Flyway
+ * migrates the primary only; the replica gets the schema through replication.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ems.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Credentials default to the primary's; pool settings under ems.datasource.replica.hikari
+    @Bean
+    @ConfigurationProperties("ems.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${ems.datasource.replica.url}") String url,
+                                              @Value("${ems.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${ems.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${ems.datasource.replica.max-lag:10s}") Duration maxLag,
+                                               MeterRegistry meterRegistry) {
+        // Reads stay on the primary until the first scheduled probe has seen the replica
+        return new ReplicaLagMonitor(primary, replica, maxLag, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor lagMonitor,
+                                 MeterRegistry meterRegistry) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replica, lagMonitor, meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            ReplicaLagMonitor lagMonitor,
+            @Value("${ems.datasource.replica.read-your-writes-margin:1s}") Duration margin,
+            @Value("${ems.datasource.replica.max-lag:10s}") Duration maxLag) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(lagMonitor, margin, maxLag));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
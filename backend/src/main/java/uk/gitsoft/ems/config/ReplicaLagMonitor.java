@@ -0,0 +1,75 @@
+package uk.gitsoft.ems.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+
+/**
+ * Estimates how far the read replica is behind the primary.
+ *
+ * Uses the employee change log rather than replication status (which needs
+ * admin privileges): the replica's newest change id says how far it has got,
+ * and the oldest change on the primary beyond that id says since when it has
+ * been missing writes. A replica that is too far behind, or cannot be reached,
+ * is taken out of rotation until a probe finds it healthy again.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+
+    private volatile long lagMillis;
+    private volatile boolean reachable;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMillis = maxLag.toMillis();
+        Gauge.builder("ems.db.replica.lag", this, monitor -> monitor.lagMillis)
+                .description("Estimated replica lag behind the primary, in milliseconds")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("ems.db.replica.usable", this, monitor -> monitor.isReplicaUsable() ? 1 : 0)
+                .description("1 while read-only transactions are sent to the replica")
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return reachable && lagMillis <= maxLagMillis;
+    }
+
+    public long lagMillis() {
+        return lagMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${ems.datasource.replica.lag-probe-interval:1s}")
+    public void probe() {
+        boolean wasUsable = isReplicaUsable();
+        try {
+            Long replicated = replica.queryForObject("select max(id) from employee_changes", Long.class);
+            Timestamp oldestMissing = primary.queryForObject(
+                    "select min(changed_at) from employee_changes where id > ?", Timestamp.class,
+                    replicated == null ? 0 : replicated);
+            lagMillis = oldestMissing == null ? 0 : Math.max(0, System.currentTimeMillis() - oldestMissing.getTime());
+            reachable = true;
+        } catch (RuntimeException ex) {
+            reachable = false;
+            if (wasUsable) {
+                log.warn("Read replica probe failed; reads go to the primary: {}", ex.getMessage());
+            }
+        }
+        if (wasUsable != isReplicaUsable()) {
+            log.info("Read replica {} (lag {} ms)", isReplicaUsable() ? "back in rotation" : "taken out of rotation", lagMillis);
+        }
+    }
+}
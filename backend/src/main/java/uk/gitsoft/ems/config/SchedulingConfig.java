@@ -0,0 +1,10 @@
+package uk.gitsoft.ems.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Housekeeping tasks such as pruning the employee change log
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,39 @@
+package uk.gitsoft.ems.config;
+
+/**
+ * A token bucket refilled lazily from the clock: up to burst tokens, refilled at
+ * perSecond. Times are System.nanoTime() values passed in by the caller.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long updatedAt;
+
+    TokenBucket(double perSecond, int burst, long now) {
+        this.tokensPerNano = perSecond / 1_000_000_000d;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.updatedAt = now;
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    synchronized long tryTake(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill(long now) {
+        if (now > updatedAt) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gitsoft.ems.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Extra safeguards for the virtual-thread execution mode.
+ *
+ * The mode itself is Spring Boot's spring.threads.virtual.enabled switch, which
+ * moves Tomcat request handling (and with it every service and JDBC call) onto
+ * virtual threads. Because request threads are then effectively unbounded, the
+ * DataSource is wrapped in a concurrency limiter sized to the Hikari pool, and
+ * carrier pinning is reported through JFR.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // Static so the post-processor does not force early creation of this configuration
+    @Bean
+    static BeanPostProcessor connectionLimiterPostProcessor(Environment environment,
+                                                            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ConnectionLimiterPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Only pools are limited; proxies and routers in front of them (replica routing) pass through.
+                // The primary pool arrives already wrapped in the circuit breaker.
+                Object pool = bean instanceof CircuitBreakingDataSource breaker ? breaker.getTargetDataSource() : bean;
+                if (!(bean instanceof DataSource dataSource) || pool instanceof DelegatingDataSource
+                        || pool instanceof AbstractRoutingDataSource) {
+                    return bean;
+                }
+                // Hikari reports -1 until the pool starts unless a size was configured
+                int poolSize = pool instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                        ? hikari.getMaximumPoolSize()
+                        : environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                return new ConcurrencyLimitingDataSource(
+                        dataSource,
+                        environment.getProperty("ems.db.limiter.max-concurrent", Integer.class, poolSize),
+                        environment.getProperty("ems.db.limiter.max-waiting", Integer.class, 200),
+                        environment.getProperty("ems.db.limiter.acquire-timeout", Duration.class, Duration.ofSeconds(2)),
+                        meterRegistry.getObject());
+            }
+        };
+    }
+
+    // Ordered between the circuit breaker (inside) and the SQL statement counter (outside)
+    private abstract static class ConnectionLimiterPostProcessor implements BeanPostProcessor, Ordered {
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+    }
+
+    @Bean
+    VirtualThreadPinningMonitor virtualThreadPinningMonitor(Environment environment, MeterRegistry meterRegistry) {
+        Duration threshold = environment.getProperty("ems.virtual-threads.pinned-threshold", Duration.class, Duration.ofMillis(20));
+        return new VirtualThreadPinningMonitor(threshold, meterRegistry);
+    }
+}
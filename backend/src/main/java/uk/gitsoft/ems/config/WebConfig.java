@@ -1,18 +1,87 @@
 package uk.gitsoft.ems.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.gitsoft.ems.config.AdmissionControlFilter.Quota;
+import uk.gitsoft.ems.config.AdmissionControlFilter.RouteClass;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**") // Apply to all endpoints under /api
                 .allowedOrigins("http://localhost:5173") // Allow frontend origin
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "ETag", "Retry-After") // Let the browser read the pagination cursor, entity tags and back-off hints
                 .allowCredentials(true);
     }
-}
\ No newline at end of file
+
+    // Binary alternatives to JSON, chosen by the client's Accept header (application/cbor)
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    // Smile with shared string values: a repeated departmentName is written once and back-referenced
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+    }
+
+    // Ahead of every other filter but the request observation, so rejected requests still show up as 429s
+    @Bean
+    @ConditionalOnProperty(name = "ems.admission.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            Environment environment,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${ems.admission.max-waiting:10}") int maxWaiting,
+            @Value("${ems.admission.queue-timeout:100ms}") Duration queueTimeout,
+            @Value("${ems.admission.max-clients:10000}") int maxClients) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int maxConcurrent = environment.getProperty("ems.admission.max-concurrent", Integer.class, poolSize);
+        Map<RouteClass, Quota> quotas = new EnumMap<>(RouteClass.class);
+        quotas.put(RouteClass.CHEAP, quota(environment, RouteClass.CHEAP, 100, 200));
+        quotas.put(RouteClass.STANDARD, quota(environment, RouteClass.STANDARD, 20, 40));
+        quotas.put(RouteClass.EXPENSIVE, quota(environment, RouteClass.EXPENSIVE, 2, 5));
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(quotas, maxConcurrent, maxWaiting, queueTimeout, maxClients,
+                        objectMapper, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+
+    private static Quota quota(Environment environment, RouteClass routeClass, double perSecond, int burst) {
+        String prefix = "ems.admission." + routeClass.tag();
+        return new Quota(environment.getProperty(prefix + ".rate", Double.class, perSecond),
+                environment.getProperty(prefix + ".burst", Integer.class, burst));
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gitsoft.ems.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import uk.gitsoft.ems.dto.BulkJobDto;
+import uk.gitsoft.ems.dto.BulkJobRequestDto;
+import uk.gitsoft.ems.service.BulkJobService;
+
+import java.net.URI;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/employees/jobs")
+public class BulkJobController {
+
+    private BulkJobService bulkJobService;
+
+    // Accepted for background execution; poll the Location for progress
+    @PostMapping
+    public ResponseEntity<BulkJobDto> submitJob(@RequestBody BulkJobRequestDto request) {
+        BulkJobDto job = bulkJobService.submit(request);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{jobId}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BulkJobDto> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(bulkJobService.getJob(jobId));
+    }
+
+    // Stops the job after the chunk in progress; chunks already applied are kept
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<BulkJobDto> cancelJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(bulkJobService.cancel(jobId));
+    }
+}
@@ -1,18 +1,30 @@
 package uk.gitsoft.ems.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import uk.gitsoft.ems.cache.CachedJson;
+import uk.gitsoft.ems.cache.LastKnownGoodCache;
+import uk.gitsoft.ems.dto.AuditEntryDto;
+import uk.gitsoft.ems.dto.AuditPageDto;
 import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.DepartmentStatsDto;
+import uk.gitsoft.ems.service.AuditService;
 import uk.gitsoft.ems.service.DepartmentService;
 
+import java.util.List;
+
 @AllArgsConstructor
 @RestController
 @RequestMapping("/api/departments")
 public class DepartmentController {
 
     private DepartmentService departmentService;
+    private AuditService auditService;
+    private LastKnownGoodCache lastKnownGood;
 
     @PostMapping
     public ResponseEntity<DepartmentDto> createDepartment(@RequestBody DepartmentDto departmentDto) {
@@ -20,18 +32,67 @@ public class DepartmentController {
         return new ResponseEntity<>(createdDepartment, HttpStatus.CREATED);
     }
 @GetMapping("/{id}")
-    public ResponseEntity<DepartmentDto> getDepartmentById(@PathVariable("id") Long departmentId) {
+    public ResponseEntity<DepartmentDto> getDepartmentById(@PathVariable("id") Long departmentId,
+                                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         DepartmentDto department = departmentService.getDepartmentById(departmentId);
-        return ResponseEntity.ok(department);
+        // Spring answers 304 for a matching If-None-Match without writing the body
+        return tagged(department, accept);
     }
     @PutMapping("/{id}")
-    public ResponseEntity<DepartmentDto> updateDepartment(@PathVariable("id") Long departmentId, @RequestBody DepartmentDto departmentDto) {
+    public ResponseEntity<DepartmentDto> updateDepartment(@PathVariable("id") Long departmentId,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                          @RequestBody DepartmentDto departmentDto) {
+        Long expectedVersion = ETags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) departmentDto.setVersion(expectedVersion);
         DepartmentDto updatedDepartment = departmentService.updateDepartment(departmentId, departmentDto);
-        return ResponseEntity.ok(updatedDepartment);
+        return tagged(updatedDepartment, accept);
+    }
+
+    // As for employees: a strong tag per encoding, varied by Accept
+    private static ResponseEntity<DepartmentDto> tagged(DepartmentDto department, String accept) {
+        MediaType mediaType = Representations.negotiate(accept);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(ETags.ofRepresentation(ETags.of(department.getVersion()), mediaType))
+                .body(department);
     }
+    // Headcount per department and totals for the dashboard, answered from in-memory counters
+    @GetMapping("/stats")
+    public ResponseEntity<DepartmentStatsDto> getDepartmentStats() {
+        return ResponseEntity.ok(departmentService.getDepartmentStats());
+    }
+    /**
+     * JSON is served from the pre-serialized department snapshot: no query and no
+     * encoding per request. A client that prefers CBOR or Smile in its Accept header
+     * gets the same snapshot encoded by the matching converter, under a tag of its
+     * own; a wildcard Accept keeps JSON.
+     */
     @GetMapping
-    public ResponseEntity<Iterable<DepartmentDto>> getAllDepartments() {
-        return ResponseEntity.ok(departmentService.getAllDepartments());
+    public ResponseEntity<?> getAllDepartments(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // The snapshot reloads from the database after a write or its TTL; if that fails, the last copy is served
+        CachedJson departments = lastKnownGood.read("departments", departmentService::getAllDepartmentsJson);
+        MediaType mediaType = Representations.negotiate(accept);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(ETags.ofList(departments.etag(), mediaType));
+        if (!mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) {
+            return response.body(lastKnownGood.read("departments:list", departmentService::getAllDepartments, List::size));
+        }
+        return response.body(departments.body());
+    }
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<AuditEntryDto>> getDepartmentHistory(@PathVariable("id") Long departmentId,
+                                                                   @RequestParam(required = false) Long after,
+                                                                   @RequestParam(required = false) Integer limit) {
+        AuditPageDto page = auditService.getDepartmentHistory(departmentId, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(EmployeeController.NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getContent());
     }
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDepartment(@PathVariable("id") Long departmentId) {
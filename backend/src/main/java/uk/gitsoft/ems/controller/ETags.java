@@ -0,0 +1,114 @@
+package uk.gitsoft.ems.controller;
+
+import org.springframework.http.MediaType;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.dto.EmployeeFieldsPageDto;
+import uk.gitsoft.ems.exception.PreconditionFailedException;
+import uk.gitsoft.ems.service.EmployeeField;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers for version-based entity tags.
+ *
+ * A single resource's ETag is its optimistic-lock version in quotes (for an
+ * employee, plus a hash of its department's name), with the media type's
+ * subtype appended for CBOR and Smile. GET handlers
+ * only need to put the tag on the ResponseEntity: Spring MVC compares it with
+ * If-None-Match and answers 304 without serializing the body. If-Match on writes
+ * is parsed here and checked by the service against the stored version.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + (version == null ? 0 : version) + "\"";
+    }
+
+    /**
+     * The employee's version plus a hash of the department name joined into the
+     * body, so renaming the department also changes the tag. If-Match only looks
+     * at the version part.
+     */
+    static String ofEmployee(EmployeeDto employee) {
+        long version = employee.getVersion() == null ? 0 : employee.getVersion();
+        if (employee.getDepartmentName() == null) return of(version);
+        return "\"" + version + "-" + Integer.toHexString(employee.getDepartmentName().hashCode()) + "\"";
+    }
+
+    // Changes whenever any row on the page is added, removed or updated, or its department renamed
+    static String ofEmployees(List<EmployeeDto> employees) {
+        long hash = 1;
+        for (EmployeeDto employee : employees) {
+            hash = 31 * hash + employee.getId();
+            hash = 31 * hash + (employee.getVersion() == null ? 0 : employee.getVersion());
+            hash = 31 * hash + (employee.getDepartmentName() == null ? 0 : employee.getDepartmentName().hashCode());
+        }
+        return "\"p" + employees.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    // As ofEmployees, plus the field set, so a different selection of the same rows gets a different tag
+    static String ofFields(EmployeeFieldsPageDto page, Set<EmployeeField> fields) {
+        int mask = 0;
+        for (EmployeeField field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        return "\"f" + Integer.toHexString(mask) + "-" + page.getSize() + "-" + Long.toHexString(page.getContentHash()) + "\"";
+    }
+
+    /**
+     * The weak tag a list is served with, for one encoding of it: JSON keeps the
+     * tag as is, other media types get their subtype appended, so a cached JSON
+     * body is never revalidated by a CBOR or Smile request or the other way round.
+     */
+    static String ofList(String tag, MediaType mediaType) {
+        return weak(ofRepresentation(tag, mediaType));
+    }
+
+    /**
+     * The strong tag a single resource is served with, for one encoding of it,
+     * suffixed like ofList. It stays strong so it can be sent back in If-Match;
+     * Tomcat never gzips a response with a strong tag, so each tag names exactly
+     * one byte sequence.
+     */
+    static String ofRepresentation(String tag, MediaType mediaType) {
+        if (mediaType != null && !mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) {
+            return tag.substring(0, tag.length() - 1) + "-" + mediaType.getSubtype() + "\"";
+        }
+        return tag;
+    }
+
+    private static String weak(String tag) {
+        return "W/" + tag;
+    }
+
+    /**
+     * @return the version the client expects, or null when If-Match is absent or "*"
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            // Weak tags never satisfy If-Match (RFC 9110 strong comparison)
+            throw new PreconditionFailedException("Weak entity tag not allowed in If-Match: " + ifMatch);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        // Employee tags carry a department-name hash, and CBOR or Smile tags the subtype, after the version
+        int dash = tag.indexOf('-');
+        if (dash > 0) {
+            tag = tag.substring(0, dash);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match does not match the current version: " + ifMatch);
+        }
+    }
+}
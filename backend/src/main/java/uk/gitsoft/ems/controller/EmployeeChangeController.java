@@ -0,0 +1,39 @@
+package uk.gitsoft.ems.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.gitsoft.ems.changes.EmployeeChangeBroadcaster;
+import uk.gitsoft.ems.dto.EmployeeChangesDto;
+import uk.gitsoft.ems.service.EmployeeChangeService;
+
+/**
+ * Delta sync for clients that keep a local copy of the employee list.
+ *
+ * Take a token (GET without since), load the list, then either poll
+ * ?since=&lt;nextToken&gt; or open the stream. A 410 means the token is too old
+ * and the list has to be loaded again.
+ */
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/employees/changes")
+public class EmployeeChangeController {
+
+    private EmployeeChangeService employeeChangeService;
+    private EmployeeChangeBroadcaster broadcaster;
+
+    @GetMapping
+    public ResponseEntity<EmployeeChangesDto> getChanges(@RequestParam(required = false) Long since,
+                                                         @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(employeeChangeService.getChanges(since, limit));
+    }
+
+    // EventSource resends the last event id on reconnect; ?since= seeds the first connection
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(required = false) Long since) {
+        return broadcaster.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -1,22 +1,45 @@
 package uk.gitsoft.ems.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.gitsoft.ems.cache.LastKnownGoodCache;
+import uk.gitsoft.ems.dto.AuditEntryDto;
+import uk.gitsoft.ems.dto.AuditPageDto;
+import uk.gitsoft.ems.dto.BulkImportResultDto;
 import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.dto.EmployeeFieldsPageDto;
+import uk.gitsoft.ems.dto.EmployeePageDto;
+import uk.gitsoft.ems.dto.ReportingHeadcountDto;
+import uk.gitsoft.ems.service.AuditService;
+import uk.gitsoft.ems.service.EmployeeField;
+import uk.gitsoft.ems.service.EmployeeImportService;
 import uk.gitsoft.ems.service.EmployeeService;
+import uk.gitsoft.ems.service.ExportFormat;
+import uk.gitsoft.ems.service.ImportFormat;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 @AllArgsConstructor
 @RestController
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private EmployeeService employeeService;
+    private EmployeeImportService employeeImportService;
+    private AuditService auditService;
+    private LastKnownGoodCache lastKnownGood;
 
     //build add Employee REST API
 
@@ -26,25 +49,186 @@ public class EmployeeController {
         EmployeeDto saved = employeeService.createEmployee(employeeDto);
         return new ResponseEntity<>(saved, HttpStatus.CREATED);
     }
+
+    // Bulk load from a JSON array, NDJSON or CSV body; returns a per-row error report
+    @PostMapping(value = "/batch", consumes = {"application/json", "application/x-ndjson", "text/csv"})
+    public ResponseEntity<BulkImportResultDto> importEmployees(@RequestParam(required = false) Integer chunkSize,
+                                                               HttpServletRequest request) throws IOException {
+        ImportFormat format = ImportFormat.fromContentType(request.getContentType());
+        return ResponseEntity.ok(employeeImportService.importEmployees(request.getInputStream(), format, chunkSize));
+    }
+
+    // Keyset-paginated list; the cursor for the next page is returned in the X-Next-Cursor header
     @GetMapping
-    public ResponseEntity<List<EmployeeDto>> getAllEmployees() {
-        return ResponseEntity.ok(employeeService.getAllEmployees());
+    public ResponseEntity<List<EmployeeDto>> getAllEmployees(@RequestParam(required = false) Long after,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) Long departmentId,
+                                                             @RequestParam(required = false) String name,
+                                                             @RequestParam(required = false) String email,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // While the database is unavailable the page last read for the same query is served, marked stale
+        String key = "employees?after=" + after + "&limit=" + limit + "&departmentId=" + departmentId
+                + "&name=" + name + "&email=" + email;
+        EmployeePageDto page = lastKnownGood.read(key,
+                () -> employeeService.getEmployeesPage(after, limit, departmentId, name, email),
+                loaded -> loaded.getContent().size());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        // The tag covers exactly the rows on this page, so an unchanged page short-circuits to 304
+        MediaType mediaType = Representations.negotiate(accept);
+        return response.contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(ETags.ofList(ETags.ofEmployees(page.getContent()), mediaType))
+                .body(page.getContent());
+    }
+
+    /**
+     * Sparse list (?fields=id,firstName,departmentName): same filters and cursor as the
+     * full list, but only the requested columns are read and the rows are written
+     * straight to JSON.
+     */
+    @GetMapping(params = "fields")
+    public ResponseEntity<byte[]> getEmployeeFields(@RequestParam String fields,
+                                                    @RequestParam(required = false) List<Long> ids,
+                                                    @RequestParam(required = false) Long after,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) Long departmentId,
+                                                    @RequestParam(required = false) String name,
+                                                    @RequestParam(required = false) String email) {
+        if (ids != null) {
+            throw new IllegalArgumentException("fields cannot be combined with ids");
+        }
+        Set<EmployeeField> selected = EmployeeField.parse(fields);
+        EmployeeFieldsPageDto page = employeeService.getEmployeeFieldsPage(selected, after, limit, departmentId, name, email);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.eTag(ETags.ofList(ETags.ofFields(page, selected), MediaType.APPLICATION_JSON)).body(page.getJson());
+    }
+
+    // Multi-get (?ids=1,2,3): one IN query, rows in request order, unknown ids left out
+    @GetMapping(params = {"ids", "!fields"})
+    public ResponseEntity<List<EmployeeDto>> getEmployeesByIds(@RequestParam List<Long> ids,
+                                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<EmployeeDto> employees = employeeService.getEmployeesByIds(ids);
+        MediaType mediaType = Representations.negotiate(accept);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(ETags.ofList(ETags.ofEmployees(employees), mediaType))
+                .body(employees);
+    }
+
+    // Type-ahead search over first name, last name and email (?q=&limit=)
+    @GetMapping("/search")
+    public ResponseEntity<List<EmployeeDto>> searchEmployees(@RequestParam(name = "q", required = false) String query,
+                                                             @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(employeeService.searchEmployees(query, limit));
     }
+
+    // Full directory export streamed row by row (?format=ndjson|csv)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportEmployees(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        StreamingResponseBody body = out -> employeeService.exportEmployees(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"employees." + exportFormat.getFileExtension() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<EmployeeDto> getEmployee(@PathVariable @Min(1) Long id) {
-        return ResponseEntity.ok(employeeService.getEmployeeById(id));
+    public ResponseEntity<EmployeeDto> getEmployee(@PathVariable @Min(1) Long id,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        EmployeeDto employee = lastKnownGood.read("employee:" + id, () -> employeeService.getEmployeeById(id));
+        // Spring answers 304 for a matching If-None-Match without writing the body
+        return tagged(employee, accept);
+    }
+
+    // Reporting lines: each answered by a single indexed query on manager_id or the closure table
+
+    @GetMapping("/{id}/reports")
+    public ResponseEntity<List<EmployeeDto>> getDirectReports(@PathVariable @Min(1) Long id) {
+        return ResponseEntity.ok(employeeService.getDirectReports(id));
+    }
+
+    // Everyone below the employee at any depth, keyset-paginated like the list (?after=&limit=)
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<List<EmployeeDto>> getReportingSubtree(@PathVariable @Min(1) Long id,
+                                                                 @RequestParam(required = false) Long after,
+                                                                 @RequestParam(required = false) Integer limit) {
+        EmployeePageDto page = employeeService.getReportingSubtree(id, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getContent());
+    }
+
+    // Managers above the employee, direct manager first
+    @GetMapping("/{id}/chain")
+    public ResponseEntity<List<EmployeeDto>> getManagementChain(@PathVariable @Min(1) Long id) {
+        return ResponseEntity.ok(employeeService.getManagementChain(id));
+    }
+
+    @GetMapping("/{id}/headcount")
+    public ResponseEntity<ReportingHeadcountDto> getReportingHeadcount(@PathVariable @Min(1) Long id) {
+        return ResponseEntity.ok(employeeService.getReportingHeadcount(id));
+    }
+
+    // Who changed what, oldest first (?after=&limit=); entries follow the write within the audit writer's flush
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<AuditEntryDto>> getEmployeeHistory(@PathVariable @Min(1) Long id,
+                                                                 @RequestParam(required = false) Long after,
+                                                                 @RequestParam(required = false) Integer limit) {
+        AuditPageDto page = auditService.getEmployeeHistory(id, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getContent());
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<EmployeeDto> updateEmployee(@PathVariable @Min(1) Long id,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
                                                       @RequestBody  @jakarta.validation.Valid EmployeeDto dto) {
-        return ResponseEntity.ok(employeeService.updateEmployee(id, dto));
+        applyIfMatch(ifMatch, dto);
+        EmployeeDto updated = employeeService.updateEmployee(id, dto);
+        return tagged(updated, accept);
     }
 
     @PatchMapping("/{id}")
     public ResponseEntity<EmployeeDto> patchEmployee(@PathVariable @Min(1) Long id,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
                                                      @RequestBody EmployeeDto dto) {
-        return ResponseEntity.ok(employeeService.patchEmployee(id, dto));
+        applyIfMatch(ifMatch, dto);
+        EmployeeDto patched = employeeService.patchEmployee(id, dto);
+        return tagged(patched, accept);
+    }
+
+    // A strong tag per encoding, so a CBOR or Smile body is never revalidated against a cached JSON one
+    private static ResponseEntity<EmployeeDto> tagged(EmployeeDto employee, String accept) {
+        MediaType mediaType = Representations.negotiate(accept);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(ETags.ofRepresentation(ETags.ofEmployee(employee), mediaType))
+                .body(employee);
+    }
+
+    // If-Match takes precedence over a version in the body; the service rejects a stale one with 412
+    private static void applyIfMatch(String ifMatch, EmployeeDto dto) {
+        Long expectedVersion = ETags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            dto.setVersion(expectedVersion);
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,39 @@
+package uk.gitsoft.ems.controller;
+
+import org.springframework.http.MediaType;
+import uk.gitsoft.ems.config.WebConfig;
+
+/**
+ * Picks the encoding of a response from the Accept header, so the handler can
+ * tag the response for that encoding before the converter writes it.
+ */
+final class Representations {
+
+    private Representations() {
+    }
+
+    /**
+     * @return CBOR or Smile when the client ranks it above JSON, otherwise JSON
+     * (also for a missing or wildcard Accept)
+     */
+    static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+        MediaType binary = null;
+        double binaryQuality = 0;
+        double json = 0;
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            double quality = mediaType.getQualityValue();
+            if (mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)
+                    || mediaType.equalsTypeAndSubtype(WebConfig.APPLICATION_SMILE)) {
+                if (quality > binaryQuality) {
+                    binary = mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)
+                            ? MediaType.APPLICATION_CBOR : WebConfig.APPLICATION_SMILE;
+                    binaryQuality = quality;
+                }
+            } else if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                json = Math.max(json, quality);
+            }
+        }
+        return binaryQuality > json ? binary : MediaType.APPLICATION_JSON;
+    }
+}
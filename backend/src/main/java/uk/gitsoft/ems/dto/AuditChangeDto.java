@@ -0,0 +1,14 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One field's value before and after a write; null on the side where the entity did not exist
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditChangeDto {
+    private Object before;
+    private Object after;
+}
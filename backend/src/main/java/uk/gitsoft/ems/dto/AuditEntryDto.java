@@ -0,0 +1,23 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One committed write in an entity's history: CREATE, UPDATE or DELETE, who made
+ * it (the X-Actor header, or the client address) and the fields it changed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEntryDto {
+    private Long id;
+    private String action;
+    private String actor;
+    private Instant occurredAt;
+    private Map<String, AuditChangeDto> changes;
+}
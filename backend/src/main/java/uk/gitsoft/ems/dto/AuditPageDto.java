@@ -0,0 +1,19 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of history entries, oldest first. nextCursor works as on
+ * EmployeePageDto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditPageDto {
+    private List<AuditEntryDto> content;
+    private Long nextCursor;
+}
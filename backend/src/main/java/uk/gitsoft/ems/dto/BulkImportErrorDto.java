@@ -0,0 +1,15 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportErrorDto {
+    // 1-based position of the record in the uploaded payload (CSV header excluded)
+    private int row;
+    private String email;
+    private String message;
+}
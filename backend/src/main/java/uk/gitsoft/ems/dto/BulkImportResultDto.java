@@ -0,0 +1,26 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk employee import: totals plus one entry per rejected row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResultDto {
+    private int received;
+    private int inserted;
+    private int failed;
+    private List<BulkImportErrorDto> errors = new ArrayList<>();
+
+    public void reject(int row, String email, String message) {
+        failed++;
+        errors.add(new BulkImportErrorDto(row, email, message));
+    }
+}
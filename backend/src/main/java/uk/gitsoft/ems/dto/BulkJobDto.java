@@ -0,0 +1,33 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.gitsoft.ems.service.BulkJobStatus;
+import uk.gitsoft.ems.service.BulkJobType;
+
+import java.time.Instant;
+
+/**
+ * Progress of a bulk job.
+ *
+ * total is the number of matching employees counted when the job started;
+ * processed is how many of them have been visited so far and affected how many
+ * rows were actually changed (rows modified concurrently may no longer match).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJobDto {
+    private String id;
+    private BulkJobType type;
+    private BulkJobStatus status;
+    private long total;
+    private long processed;
+    private long affected;
+    private int chunks;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
@@ -0,0 +1,30 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.gitsoft.ems.service.BulkJobType;
+
+/**
+ * A bulk employee operation to run in the background.
+ *
+ * departmentId and namePrefix select the employees (same meaning as on the list
+ * endpoint; every given criterion must match). targetDepartmentId, firstName and
+ * lastName are the values written by MOVE_DEPARTMENT and PATCH.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJobRequestDto {
+    private BulkJobType type;
+
+    private Long departmentId;
+    private String namePrefix;
+
+    private Long targetDepartmentId;
+    private String firstName;
+    private String lastName;
+
+    // Rows per UPDATE/DELETE statement and transaction; defaults to ems.jobs.chunk-size
+    private Integer chunkSize;
+}
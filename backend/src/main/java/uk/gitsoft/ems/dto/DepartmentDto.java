@@ -11,4 +11,6 @@ public class DepartmentDto {
     private Long id;
     private String departmentName;
     private String departmentDescription;
+    // Optimistic-lock version; when sent on PUT it must match the stored one (same as If-Match)
+    private Long version;
 }
@@ -0,0 +1,14 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepartmentHeadcountDto {
+    private Long departmentId;
+    private String departmentName;
+    private Long headcount;
+}
@@ -0,0 +1,26 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Headcount per department plus directory-wide totals, for the dashboard.
+ *
+ * unassignedEmployees counts employees without a department; they are included
+ * in totalEmployees but not in any department row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepartmentStatsDto {
+    private long totalEmployees;
+    private long unassignedEmployees;
+    private int departmentCount;
+    private int emptyDepartments;
+    private double averageHeadcount;
+    private long largestHeadcount;
+    private List<DepartmentHeadcountDto> departments;
+}
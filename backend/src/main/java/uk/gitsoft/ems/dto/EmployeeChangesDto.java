@@ -0,0 +1,24 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Employees changed after a change token, coalesced per employee.
+ *
+ * upserted holds the current state of every created or updated employee,
+ * deleted the ids of removed ones. nextToken is passed back as ?since= for the
+ * following call; hasMore means another call would return more right away.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeChangesDto {
+    private List<EmployeeDto> upserted;
+    private List<Long> deleted;
+    private long nextToken;
+    private boolean hasMore;
+}
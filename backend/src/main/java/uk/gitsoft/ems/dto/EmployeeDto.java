@@ -27,4 +27,8 @@ public class EmployeeDto {
     private Long departmentId;
     // Convenience field for read operations to display department name in UI
     private String departmentName;
+    // Optimistic-lock version; when sent on PUT/PATCH it must match the stored one (same as If-Match)
+    private Long version;
+    // Direct manager; null for the top of a reporting line. PUT replaces it, PATCH changes it only when sent
+    private Long managerId;
 }
@@ -0,0 +1,23 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One keyset page of employees reduced to the requested fields, already
+ * serialized as a JSON array.
+ *
+ * contentHash covers the id and version of every row on the page (and the
+ * department name when it is selected), the same way the full list's ETag
+ * does; nextCursor works as on EmployeePageDto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeFieldsPageDto {
+    private byte[] json;
+    private int size;
+    private long contentHash;
+    private Long nextCursor;
+}
@@ -0,0 +1,21 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of employees.
+ *
+ * nextCursor is the id of the last row in this page and is passed back as
+ * ?after= to fetch the following page; it is null when there are no more rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeePageDto {
+    private List<EmployeeDto> content;
+    private Long nextCursor;
+}
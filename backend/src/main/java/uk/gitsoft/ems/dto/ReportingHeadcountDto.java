@@ -0,0 +1,15 @@
+package uk.gitsoft.ems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportingHeadcountDto {
+    private Long employeeId;
+    private Long directReports;
+    // Everyone below the employee, at any depth
+    private Long total;
+}
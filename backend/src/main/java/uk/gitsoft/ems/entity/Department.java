@@ -6,7 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.stereotype.Service;
+import org.hibernate.annotations.ColumnDefault;
 
 @Getter
 @Setter
@@ -25,5 +25,11 @@ public class Department {
     @Column(name = "department_description")
     private String departmentDescription;
 
+    // Optimistic lock; also exposed to clients as the resource ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
 
 }
@@ -2,6 +2,8 @@ package uk.gitsoft.ems.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Getter
 @Setter
@@ -10,6 +12,7 @@ import lombok.*;
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)   // equals/hashCode on id only
 @Entity
+@DynamicUpdate   // updates write only the changed columns (and skip the statement when nothing changed)
 @Table(name = "employees")
 public class Employee {
 
@@ -27,8 +30,22 @@ public class Employee {
     @Column(name = "email_id", nullable = false, unique = true)
     private String email;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Optimistic lock; also exposed to clients as the resource ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Lazy: writes only need the foreign key, reads go through DTO projections that join explicitly
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "department_id")
+    @ToString.Exclude
     private Department department;
+
+    // Lazy like the department; the full reporting line lives in employee_hierarchy (see ReportingLines)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "manager_id")
+    @ToString.Exclude
+    private Employee manager;
 }
 
@@ -0,0 +1,40 @@
+package uk.gitsoft.ems.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One row per employee write, in write order: the id is the change token
+ * handed to delta-sync clients. A delete leaves a DELETE row behind as its
+ * tombstone. Written and read with JDBC by EmployeeChangeLog; the mapping
+ * documents the table and holds the change types.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "employee_changes", indexes = @Index(name = "idx_employee_changes_changed_at", columnList = "changed_at"))
+public class EmployeeChange {
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 10)
+    private Type type;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
@@ -0,0 +1,46 @@
+package uk.gitsoft.ems.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * One row of the reporting-line closure table: descendant reports to ancestor,
+ * depth levels down (1 = directly). Every manager above an employee has a row,
+ * the employee itself has none. Maintained with JDBC by ReportingLines; the
+ * mapping lets the read queries join it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@IdClass(ReportingLine.Key.class)
+@Table(name = "employee_hierarchy")
+public class ReportingLine {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
@@ -0,0 +1,12 @@
+package uk.gitsoft.ems.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The change log no longer reaches back to the client's token, so it has to reload in full
+@ResponseStatus(value = HttpStatus.GONE)
+public class ChangeTokenExpiredException extends RuntimeException {
+    public ChangeTokenExpiredException(String message) {
+        super(message);
+    }
+}
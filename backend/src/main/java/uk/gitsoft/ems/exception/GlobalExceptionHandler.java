@@ -8,8 +8,15 @@ import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -17,6 +24,7 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 
 import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * GlobalExceptionHandler is a centralized error handler for all controllers.
@@ -101,6 +109,114 @@ public class GlobalExceptionHandler {
     }
 
 
+    /**
+     * Handle requests that could not get a database connection.
+     *
+     * - Raised when the connection pool (or the concurrency limiter in front of it)
+     *   is exhausted, the database is unreachable or its circuit is open, or a
+     *   query ran past its timeout, and no last known good copy could be served.
+     * - Returns 503 with Retry-After so clients back off instead of piling on.
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class,
+            DataAccessResourceFailureException.class,
+            TransientDataAccessResourceException.class,
+            QueryTimeoutException.class})
+    public ResponseEntity<Map<String, Object>> handleDatabaseUnavailable(RuntimeException ex,
+                                                                        HttpServletRequest req) {
+        log.warn("503 Service Unavailable: {}", ex.getMessage());
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of(
+                        "timestamp", Instant.now().toString(),
+                        "status", status.value(),
+                        "error", status.getReasonPhrase(),
+                        "message", "The service is busy. Please retry shortly.",
+                        "path", req.getRequestURI()
+                ));
+    }
+
+    /**
+     * Handle a full bulk-job queue.
+     *
+     * - Returns 503 with Retry-After; the job was not accepted and can be resubmitted.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleJobQueueFull(RejectedExecutionException ex,
+                                                                  HttpServletRequest req) {
+        log.warn("503 Service Unavailable: job queue full");
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(Map.of(
+                        "timestamp", Instant.now().toString(),
+                        "status", status.value(),
+                        "error", status.getReasonPhrase(),
+                        "message", "Too many bulk jobs are queued. Please retry later.",
+                        "path", req.getRequestURI()
+                ));
+    }
+
+    /**
+     * Handle conditional writes against a stale version.
+     *
+     * - PreconditionFailedException: If-Match / body version did not match.
+     * - OptimisticLockingFailureException: someone else committed between our read and write.
+     * - Both return 412 Precondition Failed so the client re-reads and retries.
+     */
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<Map<String, Object>> handlePreconditionFailed(RuntimeException ex,
+                                                                        HttpServletRequest req) {
+        log.warn("412 Precondition Failed: {}", ex.getMessage());
+        HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+        return ResponseEntity.status(status).body(Map.of(
+                "timestamp", Instant.now().toString(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", "The resource was modified by someone else; reload it and try again",
+                "path", req.getRequestURI()
+        ));
+    }
+
+    /**
+     * Handle a delta-sync token older than the retained change log.
+     *
+     * - Returns 410 Gone; the client reloads the full list and takes a new token.
+     */
+    @ExceptionHandler(ChangeTokenExpiredException.class)
+    public ResponseEntity<Map<String, Object>> handleChangeTokenExpired(ChangeTokenExpiredException ex,
+                                                                        HttpServletRequest req) {
+        log.warn("410 Gone: {}", ex.getMessage());
+        HttpStatus status = HttpStatus.GONE;
+        return ResponseEntity.status(status).body(Map.of(
+                "timestamp", Instant.now().toString(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", ex.getMessage(),
+                "path", req.getRequestURI()
+        ));
+    }
+
+    /**
+     * Handle writes rejected by a database constraint (duplicate email,
+     * department removed in the meantime, department still referenced).
+     *
+     * - Returns a 409 Conflict instead of a generic 500.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, Object>> handleDataIntegrityViolation(
+            DataIntegrityViolationException ex, HttpServletRequest req) {
+        log.warn("409 Conflict: {}", ex.getMostSpecificCause().getMessage());
+        HttpStatus status = HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(Map.of(
+                "timestamp", Instant.now().toString(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", "The request conflicts with existing data",
+                "path", req.getRequestURI()
+        ));
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<Map<String, Object>> handleConstraintViolation(
             ConstraintViolationException ex, HttpServletRequest req) {
@@ -0,0 +1,179 @@
+package uk.gitsoft.ems.hierarchy;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.exception.ResourceNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the reporting-line closure table (employee_hierarchy) in step with
+ * employees.manager_id.
+ *
+ * Every call runs inside the caller's write transaction, so the closure rows
+ * change exactly when the manager does. The hierarchy reads here are locking
+ * reads: two concurrent moves that could together form a cycle touch a common
+ * row, so the second waits for the first and then sees its result. Moving an
+ * employee rewrites one row per (manager above, employee in the moved subtree)
+ * pair; a subtree of s people under a d-level chain costs s * d rows.
+ */
+@Component
+public class ReportingLines {
+
+    private static final int IN_CHUNK = 1000;
+
+    private record Row(long id, int depth) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReportingLines(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Locks the manager's row for the rest of the transaction, so it can't be
+     * deleted or moved while someone is placed under it.
+     */
+    public void lockManager(long managerId) {
+        List<Long> found = jdbcTemplate.queryForList(
+                "select id from employees where id = ? for update", Long.class, managerId);
+        if (found.isEmpty()) {
+            throw new ResourceNotFoundException("Manager not found: " + managerId);
+        }
+    }
+
+    /**
+     * Closure rows for a new employee placed under a manager: one per manager
+     * in the chain above it. Nobody reports to a new employee yet.
+     */
+    public void attach(long employeeId, long managerId) {
+        jdbcTemplate.update("insert into employee_hierarchy (ancestor_id, descendant_id, depth) values (?, ?, 1)",
+                managerId, employeeId);
+        jdbcTemplate.update("""
+                insert into employee_hierarchy (ancestor_id, descendant_id, depth)
+                select ancestor_id, ?, depth + 1 from employee_hierarchy where descendant_id = ?
+                """, employeeId, managerId);
+    }
+
+    /**
+     * Moves an employee and everyone below them under a new manager (null: to
+     * the top). The caller has already changed manager_id and locked the new
+     * manager's row.
+     *
+     * @throws IllegalArgumentException if the new manager reports to the employee
+     */
+    public void move(long employeeId, Long managerId) {
+        List<Row> subtree = jdbcTemplate.query(
+                "select descendant_id, depth from employee_hierarchy where ancestor_id = ? for update",
+                (rs, rowNum) -> new Row(rs.getLong(1), rs.getInt(2)), employeeId);
+        if (managerId != null && (managerId == employeeId
+                || subtree.stream().anyMatch(row -> row.id() == managerId))) {
+            throw new IllegalArgumentException("Employee " + managerId + " reports to employee " + employeeId
+                    + " and cannot become their manager");
+        }
+        List<Long> oldChain = jdbcTemplate.queryForList(
+                "select ancestor_id from employee_hierarchy where descendant_id = ? for update", Long.class, employeeId);
+        List<Row> newChain = new ArrayList<>();
+        if (managerId != null) {
+            newChain.add(new Row(managerId, 0));
+            newChain.addAll(jdbcTemplate.query(
+                    "select ancestor_id, depth from employee_hierarchy where descendant_id = ? for update",
+                    (rs, rowNum) -> new Row(rs.getLong(1), rs.getInt(2)), managerId));
+        }
+
+        // Cut the moved subtree loose from the old chain; paths inside it stay as they are
+        jdbcTemplate.update("delete from employee_hierarchy where descendant_id = ?", employeeId);
+        if (!oldChain.isEmpty()) {
+            String chain = placeholders(oldChain.size());
+            for (List<Long> chunk : chunks(subtree.stream().map(Row::id).toList())) {
+                List<Object> args = new ArrayList<>(oldChain);
+                args.addAll(chunk);
+                jdbcTemplate.update("delete from employee_hierarchy where ancestor_id in (" + chain
+                        + ") and descendant_id in (" + placeholders(chunk.size()) + ")", args.toArray());
+            }
+        }
+
+        // Hang it under the new chain: the manager and everyone above them, over the employee and everyone below
+        List<Object[]> rows = new ArrayList<>();
+        for (Row above : newChain) {
+            rows.add(new Object[]{above.id(), employeeId, above.depth() + 1});
+            for (Row below : subtree) {
+                rows.add(new Object[]{above.id(), below.id(), above.depth() + 1 + below.depth()});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "insert into employee_hierarchy (ancestor_id, descendant_id, depth) values (?, ?, ?)", rows);
+        }
+    }
+
+    /**
+     * Prepares an employee's removal: their direct reports move up to the
+     * employee's own manager (or to the top), with their version bumped, and
+     * everyone below moves up one level. The employee's own closure rows go
+     * with their employees row (ON DELETE CASCADE).
+     *
+     * @return the reattached direct reports, for the caller's change log and read models
+     */
+    public List<Long> remove(long employeeId) {
+        List<Long> reports = jdbcTemplate.queryForList(
+                "select id from employees where manager_id = ? for update", Long.class, employeeId);
+        if (reports.isEmpty()) {
+            return List.of();
+        }
+        List<Long> managers = jdbcTemplate.queryForList(
+                "select manager_id from employees where id = ? for update", Long.class, employeeId);
+        Long managerId = managers.isEmpty() ? null : managers.get(0);
+        List<Long> subtree = jdbcTemplate.queryForList(
+                "select descendant_id from employee_hierarchy where ancestor_id = ? for update", Long.class, employeeId);
+        List<Long> chain = jdbcTemplate.queryForList(
+                "select ancestor_id from employee_hierarchy where descendant_id = ? for update", Long.class, employeeId);
+
+        if (!chain.isEmpty()) {
+            String chainPlaceholders = placeholders(chain.size());
+            for (List<Long> chunk : chunks(subtree)) {
+                List<Object> args = new ArrayList<>(chain);
+                args.addAll(chunk);
+                jdbcTemplate.update("update employee_hierarchy set depth = depth - 1 where ancestor_id in ("
+                        + chainPlaceholders + ") and descendant_id in (" + placeholders(chunk.size()) + ")", args.toArray());
+            }
+        }
+        jdbcTemplate.update("delete from employee_hierarchy where ancestor_id = ? or descendant_id = ?",
+                employeeId, employeeId);
+        // Bumped like any other update, so ETags and If-Match see the new manager
+        jdbcTemplate.update("update employees set manager_id = ?, version = version + 1 where manager_id = ?",
+                managerId, employeeId);
+        return reports;
+    }
+
+    /**
+     * Which of the given employees have someone reporting to them; only those
+     * need remove() before they are deleted.
+     */
+    public Set<Long> managersAmong(Collection<Long> employeeIds) {
+        Set<Long> managers = new HashSet<>();
+        for (List<Long> chunk : chunks(List.copyOf(employeeIds))) {
+            managers.addAll(jdbcTemplate.queryForList("select distinct manager_id from employees where manager_id in ("
+                    + placeholders(chunk.size()) + ")", Long.class, chunk.toArray()));
+        }
+        return managers;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + IN_CHUNK)));
+        }
+        return chunks;
+    }
+}
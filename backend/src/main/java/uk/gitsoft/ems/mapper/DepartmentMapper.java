@@ -8,7 +8,8 @@ public class DepartmentMapper {
        return new DepartmentDto(
                department.getId(),
                department.getDepartmentName(),
-               department.getDepartmentDescription()
+               department.getDepartmentDescription(),
+               department.getVersion()
        );
    }
 
@@ -17,7 +18,8 @@ public class DepartmentMapper {
          return new Department(
                 departmentDto.getId(),
                 departmentDto.getDepartmentName(),
-                departmentDto.getDepartmentDescription()
+                departmentDto.getDepartmentDescription(),
+                null // assigned by Hibernate on insert
          );
     }
 }
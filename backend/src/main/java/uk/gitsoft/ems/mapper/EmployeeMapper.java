@@ -1,5 +1,6 @@
 package uk.gitsoft.ems.mapper;
 
+import uk.gitsoft.ems.dto.DepartmentDto;
 import uk.gitsoft.ems.dto.EmployeeDto;
 import uk.gitsoft.ems.entity.Employee;
 
@@ -10,12 +11,31 @@ public class EmployeeMapper {
         employeeDto.setFirstName(employee.getFirstname());
         employeeDto.setLastName(employee.getLastname());
         employeeDto.setEmail(employee.getEmail());
+        employeeDto.setVersion(employee.getVersion());
+        employeeDto.setManagerId(managerIdOf(employee));
         if (employee.getDepartment() != null) {
             employeeDto.setDepartmentId(employee.getDepartment().getId());
             employeeDto.setDepartmentName(employee.getDepartment().getDepartmentName());
         }
         return employeeDto;
     }
+    // Takes department details from an already-loaded DTO so a lazy department reference is never initialised
+    public static EmployeeDto mapToEmployeeDto(Employee employee, DepartmentDto department) {
+        EmployeeDto employeeDto = new EmployeeDto();
+        employeeDto.setId(employee.getId());
+        employeeDto.setFirstName(employee.getFirstname());
+        employeeDto.setLastName(employee.getLastname());
+        employeeDto.setEmail(employee.getEmail());
+        employeeDto.setVersion(employee.getVersion());
+        employeeDto.setManagerId(managerIdOf(employee));
+        employeeDto.setDepartmentId(department.getId());
+        employeeDto.setDepartmentName(department.getDepartmentName());
+        return employeeDto;
+    }
+    // Reading the id of a lazy manager reference does not load it
+    private static Long managerIdOf(Employee employee) {
+        return employee.getManager() == null ? null : employee.getManager().getId();
+    }
     public static Employee mapToEmployee(EmployeeDto employeeDto) {
         Employee employee = new Employee();
         employee.setId(employeeDto.getId());
@@ -0,0 +1,39 @@
+package uk.gitsoft.ems.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts SqlStatementCountingDataSource in front of the application DataSource
+ * (the bean named dataSource, whether a pool or the replica routing proxy).
+ */
+@Configuration
+public class SqlStatementCountConfig {
+
+    // Static so the post-processor does not force early creation of this configuration
+    @Bean
+    static BeanPostProcessor sqlStatementCountingPostProcessor() {
+        return new StatementCountingPostProcessor();
+    }
+
+    // Runs last, so the circuit breaker and connection limiter are already in place underneath
+    private static final class StatementCountingPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (beanName.equals("dataSource") && bean instanceof DataSource dataSource) {
+                return new SqlStatementCountingDataSource(dataSource);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gitsoft.ems.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Records how many SQL statements each API request issued.
+ *
+ * - Publishes the ems.http.sql.statements distribution per method and route,
+ *   next to Spring's http.server.requests latency timer.
+ * - Logs a warning when one statement repeats at least the N+1 threshold
+ *   within a single request.
+ * - Leaves the count in a request attribute (used by tests and the dev header).
+ */
+@Component
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    public static final String COUNT_ATTRIBUTE = SqlStatementCountFilter.class.getName() + ".count";
+    public static final String COUNT_HEADER = "X-SQL-Statement-Count";
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementCountFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+    private final boolean exposeHeader;
+
+    public SqlStatementCountFilter(MeterRegistry meterRegistry,
+                                   @Value("${ems.metrics.n-plus-one-threshold:5}") int nPlusOneThreshold,
+                                   @Value("${ems.metrics.sql-count-header:false}") boolean exposeHeader) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.exposeHeader = exposeHeader;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStatementCounter.Tally tally = SqlStatementCounter.stop();
+            record(request, response, tally);
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, SqlStatementCounter.Tally tally) {
+        int total = tally == null ? 0 : tally.total();
+        request.setAttribute(COUNT_ATTRIBUTE, total);
+        // Bodies get the header from SqlStatementCountHeaderAdvice before they are written
+        if (exposeHeader && !response.isCommitted()) {
+            response.setIntHeader(COUNT_HEADER, total);
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("ems.http.sql.statements")
+                .description("SQL statements issued per API request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(total);
+
+        if (tally == null) return;
+        for (Map.Entry<String, Integer> statement : tally.byStatement().entrySet()) {
+            if (statement.getValue() >= nPlusOneThreshold) {
+                log.warn("Possible N+1 on {} {}: statement executed {} times: {}",
+                        request.getMethod(), uri, statement.getValue(), statement.getKey());
+            }
+        }
+    }
+}
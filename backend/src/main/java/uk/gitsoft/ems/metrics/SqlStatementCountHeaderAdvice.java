@@ -0,0 +1,35 @@
+package uk.gitsoft.ems.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Dev aid: adds X-SQL-Statement-Count to every response body just before it is
+ * written, while headers can still be set. Enabled with ems.metrics.sql-count-header.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "ems.metrics.sql-count-header", havingValue = "true")
+public class SqlStatementCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatementCounter.Tally tally = SqlStatementCounter.current();
+        if (tally != null) {
+            response.getHeaders().set(SqlStatementCountFilter.COUNT_HEADER, String.valueOf(tally.total()));
+        }
+        return body;
+    }
+}
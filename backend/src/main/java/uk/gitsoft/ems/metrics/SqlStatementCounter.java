@@ -0,0 +1,93 @@
+package uk.gitsoft.ems.metrics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Counts the SQL statements issued on the current thread.
+ *
+ * Fed by SqlStatementCountingDataSource, which sits in front of the application
+ * DataSource, so Hibernate, JdbcTemplate and any other JDBC access are all
+ * counted. State is kept in a static ThreadLocal that SqlStatementCountFilter
+ * opens and closes around each request. Besides the total, each distinct
+ * statement is tallied so that the same select repeated many times in one
+ * request (the N+1 pattern) can be reported.
+ */
+public final class SqlStatementCounter {
+
+    /**
+     * Statements seen during one request.
+     */
+    public static final class Tally {
+        private int total;
+        private final Map<String, Integer> byStatement = new HashMap<>();
+
+        public int total() {
+            return total;
+        }
+
+        public Map<String, Integer> byStatement() {
+            return byStatement;
+        }
+
+        private void add(Tally other) {
+            total += other.total;
+            other.byStatement.forEach((sql, count) -> byStatement.merge(sql, count, Integer::sum));
+        }
+    }
+
+    private static final ThreadLocal<Tally> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static void start() {
+        CURRENT.set(new Tally());
+    }
+
+    /**
+     * @return the tally since start(), or null when counting is not active on this thread
+     */
+    public static Tally current() {
+        return CURRENT.get();
+    }
+
+    public static Tally stop() {
+        Tally tally = CURRENT.get();
+        CURRENT.remove();
+        return tally;
+    }
+
+    /**
+     * Runs work on behalf of several requests (e.g. one query answering a batch
+     * of lookups) and charges its statements to each of their tallies instead of
+     * only to the current thread's. Null tallies (counting not active) are skipped.
+     */
+    public static <T> T countFor(Collection<Tally> tallies, Supplier<T> work) {
+        Tally previous = CURRENT.get();
+        Tally shared = new Tally();
+        CURRENT.set(shared);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+            for (Tally tally : tallies) {
+                if (tally != null) tally.add(shared);
+            }
+        }
+    }
+
+    static void count(String sql) {
+        Tally tally = CURRENT.get();
+        if (tally != null) {
+            tally.total++;
+            tally.byStatement.merge(sql, 1, Integer::sum);
+        }
+    }
+}
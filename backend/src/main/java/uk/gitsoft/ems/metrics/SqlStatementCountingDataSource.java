@@ -0,0 +1,80 @@
+package uk.gitsoft.ems.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Reports every SQL statement sent through the application DataSource to
+ * SqlStatementCounter.
+ *
+ * Prepared and callable statements are counted once when they are prepared
+ * (a JDBC batch is one statement, however many rows it carries); plain
+ * statements are counted per SQL string executed or added to a batch.
+ */
+public class SqlStatementCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> PREPARE = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "addBatch");
+
+    public SqlStatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                SqlStatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("unwrap") && args[0] instanceof Class<?> type && type.isInstance(connection)) {
+                        return connection;
+                    }
+                    if (PREPARE.contains(method.getName()) && args[0] instanceof String sql) {
+                        SqlStatementCounter.count(sql);
+                    }
+                    Object result = invoke(connection, method, args);
+                    return method.getName().equals("createStatement") ? counting((Statement) result) : result;
+                });
+    }
+
+    private static Statement counting(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(
+                SqlStatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("unwrap") && args[0] instanceof Class<?> type && type.isInstance(statement)) {
+                        return statement;
+                    }
+                    if (EXECUTE.contains(method.getName()) && args != null && args[0] instanceof String sql) {
+                        SqlStatementCounter.count(sql);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package uk.gitsoft.ems.perf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Fills an empty database with a synthetic, reproducible directory for load tests.
+ *
+ * Runs only under the perf profile, before the application reports ready. The
+ * same ems.perf.seed.* settings always produce the same rows: department sizes
+ * follow a Zipf-like skew (a few large departments, a long tail of small ones)
+ * and names are drawn from fixed lists, so results are comparable between
+ * commits. Rows go in through JDBC batches, as in the bulk import.
+ */
+@Component
+@Profile("perf")
+public class PerfDataSeeder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfDataSeeder.class);
+
+    private static final int BATCH_SIZE = 5_000;
+
+    private static final String[] DEPARTMENTS = {
+            "Engineering", "Sales", "Customer Support", "Operations", "Marketing", "Finance",
+            "Human Resources", "Product", "Legal", "Procurement", "Facilities", "Research",
+            "Quality Assurance", "Security", "Data", "Design", "Logistics", "Training",
+            "Compliance", "Internal Audit", "Partnerships", "Public Relations", "IT Services", "Strategy"
+    };
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Oliver", "Amelia", "George", "Isla", "Harry", "Ava", "Noah", "Mia", "Jack", "Ivy",
+            "Leo", "Freya", "Arthur", "Lily", "Muhammad", "Florence", "Oscar", "Sophia", "Archie", "Grace",
+            "Aarav", "Priya", "Wei", "Mei", "Hiroshi", "Yuki", "Mateo", "Lucia", "Kwame", "Amara",
+            "Jan", "Zofia", "Lukas", "Emma", "Pierre", "Chloe", "Giulia", "Marco", "Sean", "Aoife"
+    };
+    private static final String[] LAST_NAMES = {
+            "Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson", "Davies", "Patel", "Wright",
+            "Robinson", "Thompson", "Evans", "Walker", "White", "Roberts", "Green", "Hall", "Wood", "Jackson",
+            "Clarke", "Khan", "Lewis", "Harris", "Martin", "Cooper", "King", "Lee", "Baker", "Morris",
+            "Nowak", "Kowalski", "Wang", "Li", "Zhang", "Tanaka", "Sato", "Garcia", "Rodriguez", "Martinez",
+            "Mensah", "Okafor", "Murphy", "Kelly", "Muller", "Schmidt", "Rossi", "Russo", "Dubois", "Moreau",
+            "Silva", "Santos", "Ivanov", "Novak", "Horvat", "Jensen", "Hansen", "Nielsen", "Singh", "Chen"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DepartmentSnapshotCache departmentCache;
+    private final int employees;
+    private final int departments;
+    private final long randomSeed;
+
+    public PerfDataSeeder(JdbcTemplate jdbcTemplate,
+                          DepartmentSnapshotCache departmentCache,
+                          @Value("${ems.perf.seed.employees:100000}") int employees,
+                          @Value("${ems.perf.seed.departments:24}") int departments,
+                          @Value("${ems.perf.seed.random-seed:42}") long randomSeed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.departmentCache = departmentCache;
+        this.employees = employees;
+        this.departments = departments;
+        this.randomSeed = randomSeed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long existing = jdbcTemplate.queryForObject("select count(*) from employees", Long.class);
+        if (existing != null && existing > 0) {
+            log.info("Perf seed skipped: {} employees already present", existing);
+            return;
+        }
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(randomSeed);
+
+        List<Long> departmentIds = insertDepartments();
+        double[] cumulativeWeights = zipfCumulativeWeights(departmentIds.size());
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= employees; i++) {
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            // The running number keeps emails unique however often a name pair repeats
+            String email = (firstName + "." + lastName + "." + i + "@example.com").toLowerCase(Locale.ROOT);
+            Long departmentId = departmentIds.get(pick(cumulativeWeights, random.nextDouble()));
+            batch.add(new Object[]{firstName, lastName, email, departmentId});
+            if (batch.size() == BATCH_SIZE) {
+                insertEmployees(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) insertEmployees(batch);
+
+        departmentCache.invalidate();
+        log.info("Perf seed: {} employees in {} departments in {} ms",
+                employees, departmentIds.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private List<Long> insertDepartments() {
+        List<Object[]> rows = new ArrayList<>(departments);
+        for (int i = 0; i < departments; i++) {
+            String name = DEPARTMENTS[i % DEPARTMENTS.length];
+            if (i >= DEPARTMENTS.length) name += " " + (i / DEPARTMENTS.length + 1);
+            rows.add(new Object[]{name, name + " department"});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into departments (department_name, department_description, version) values (?, ?, 0)", rows);
+        return jdbcTemplate.queryForList("select id from departments order by id", Long.class);
+    }
+
+    private void insertEmployees(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(
+                "insert into employees (first_name, last_name, email_id, department_id, version) values (?, ?, ?, ?, 0)",
+                rows);
+    }
+
+    // Department k gets weight 1/(k+1): the first few departments hold most of the staff
+    private static double[] zipfCumulativeWeights(int count) {
+        double[] cumulative = new double[count];
+        double total = 0;
+        for (int k = 0; k < count; k++) {
+            total += 1.0 / (k + 1);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < count; k++) {
+            cumulative[k] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulativeWeights, double sample) {
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] < sample) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,358 @@
+package uk.gitsoft.ems.readmodel;
+
+import uk.gitsoft.ems.dto.EmployeeDto;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The employee directory as parallel primitive arrays, sorted by id.
+ *
+ * One slot per employee: id, version, department id and manager id are longs
+ * (0 for none; ids are positive), and the three text fields live back to back
+ * in a single byte arena as length-prefixed UTF-8, addressed by textAt. The
+ * whole table is a handful of arrays that hold no references, so the garbage
+ * collector never has to walk it however many employees there are.
+ *
+ * Ids are found by binary search. A removal only marks the slot, and an update
+ * that changes text appends the new text, so writes are O(log n) except when an
+ * id arrives out of order; the arrays are compacted once a quarter of the slots
+ * or half the arena is dead.
+ */
+final class EmployeeColumns {
+
+    record Loaded(EmployeeColumns columns, long token) {
+    }
+
+    private static final int MAGIC = 0x454d5352; // "EMSR"
+    private static final int FORMAT = 1;
+    // magic, format, token, rows, arena bytes
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+    private static final int ROW_BYTES = 4 * Long.BYTES + Integer.BYTES;
+    private static final long REMOVED = -1;
+    private static final int NULL_TEXT = -1;
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final StampedLock lock = new StampedLock();
+    private long[] ids;
+    private long[] versions;
+    private long[] departmentIds;
+    private long[] managerIds;
+    private int[] textAt;
+    private byte[] text;
+    private int size;
+    private int removed;
+    private int textUsed;
+    private int deadText;
+
+    EmployeeColumns() {
+        this(1024, 64 * 1024);
+    }
+
+    private EmployeeColumns(int rows, int textBytes) {
+        ids = new long[rows];
+        versions = new long[rows];
+        departmentIds = new long[rows];
+        managerIds = new long[rows];
+        textAt = new int[rows];
+        text = new byte[textBytes];
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size - removed;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    long textBytes() {
+        long stamp = lock.readLock();
+        try {
+            return textUsed - deadText;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Without departmentName, which callers fill in from the department snapshot
+    EmployeeDto get(long id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = Arrays.binarySearch(ids, 0, size, id);
+            return slot < 0 || versions[slot] == REMOVED ? null : row(slot);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Every employee in id order, without departmentName
+    List<EmployeeDto> all() {
+        long stamp = lock.readLock();
+        try {
+            List<EmployeeDto> rows = new ArrayList<>(size - removed);
+            for (int slot = 0; slot < size; slot++) {
+                if (versions[slot] != REMOVED) rows.add(row(slot));
+            }
+            return rows;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void put(EmployeeDto employee) {
+        byte[] encoded = encode(employee);
+        long id = employee.getId();
+        long stamp = lock.writeLock();
+        try {
+            int slot = Arrays.binarySearch(ids, 0, size, id);
+            if (slot >= 0) {
+                if (versions[slot] == REMOVED) {
+                    removed--;
+                } else {
+                    deadText += textLength(textAt[slot]);
+                }
+            } else {
+                slot = -slot - 1;
+                ensureRows(size + 1);
+                if (slot < size) {
+                    // Out of order (another instance's id arriving late): open a gap
+                    shift(slot, slot + 1, size - slot);
+                }
+                size++;
+                ids[slot] = id;
+            }
+            versions[slot] = employee.getVersion() == null ? 0 : employee.getVersion();
+            departmentIds[slot] = orNone(employee.getDepartmentId());
+            managerIds[slot] = orNone(employee.getManagerId());
+            textAt[slot] = append(encoded);
+            compactIfSparse();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    boolean remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = Arrays.binarySearch(ids, 0, size, id);
+            if (slot < 0 || versions[slot] == REMOVED) return false;
+            versions[slot] = REMOVED;
+            deadText += textLength(textAt[slot]);
+            removed++;
+            compactIfSparse();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes the live rows to a memory-mapped temporary file next to the target
+     * and moves it into place, so a crash mid-write leaves the previous snapshot.
+     * token is the change-log position the rows are known to cover.
+     */
+    void writeTo(Path file, long token) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long stamp = lock.readLock();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int rows = size - removed;
+            int arena = textUsed - deadText;
+            long length = HEADER_BYTES + (long) rows * ROW_BYTES + arena;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Read model of " + length + " bytes is too large for one snapshot mapping");
+            }
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            out.putInt(MAGIC).putInt(FORMAT).putLong(token).putInt(rows).putInt(arena);
+            int idsAt = HEADER_BYTES;
+            int versionsAt = idsAt + rows * Long.BYTES;
+            int departmentsAt = versionsAt + rows * Long.BYTES;
+            int managersAt = departmentsAt + rows * Long.BYTES;
+            int textAtAt = managersAt + rows * Long.BYTES;
+            int arenaAt = textAtAt + rows * Integer.BYTES;
+            int row = 0;
+            int written = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (versions[slot] == REMOVED) continue;
+                out.putLong(idsAt + row * Long.BYTES, ids[slot]);
+                out.putLong(versionsAt + row * Long.BYTES, versions[slot]);
+                out.putLong(departmentsAt + row * Long.BYTES, departmentIds[slot]);
+                out.putLong(managersAt + row * Long.BYTES, managerIds[slot]);
+                out.putInt(textAtAt + row * Integer.BYTES, written);
+                int bytes = textLength(textAt[slot]);
+                out.put(arenaAt + written, text, textAt[slot], bytes);
+                written += bytes;
+                row++;
+            }
+            out.force();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot written by writeTo and copies each column out in one bulk
+     * read, so restoring costs about as much as reading the file once.
+     */
+    static Loaded readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a read model snapshot: " + file);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT) {
+                throw new IOException("Not a read model snapshot, or written by another version: " + file);
+            }
+            long token = in.getLong();
+            int rows = in.getInt();
+            int arena = in.getInt();
+            if (rows < 0 || arena < 0 || HEADER_BYTES + (long) rows * ROW_BYTES + arena != channel.size()) {
+                throw new IOException("Truncated read model snapshot: " + file);
+            }
+            EmployeeColumns columns = new EmployeeColumns(Math.max(rows, 16), Math.max(arena, 1024));
+            int at = HEADER_BYTES;
+            in.slice(at, rows * Long.BYTES).asLongBuffer().get(columns.ids, 0, rows);
+            at += rows * Long.BYTES;
+            in.slice(at, rows * Long.BYTES).asLongBuffer().get(columns.versions, 0, rows);
+            at += rows * Long.BYTES;
+            in.slice(at, rows * Long.BYTES).asLongBuffer().get(columns.departmentIds, 0, rows);
+            at += rows * Long.BYTES;
+            in.slice(at, rows * Long.BYTES).asLongBuffer().get(columns.managerIds, 0, rows);
+            at += rows * Long.BYTES;
+            in.slice(at, rows * Integer.BYTES).asIntBuffer().get(columns.textAt, 0, rows);
+            at += rows * Integer.BYTES;
+            in.get(at, columns.text, 0, arena);
+            columns.size = rows;
+            columns.textUsed = arena;
+            return new Loaded(columns, token);
+        }
+    }
+
+    private EmployeeDto row(int slot) {
+        int at = textAt[slot];
+        String firstName = readText(at);
+        at += textFieldLength(at);
+        String lastName = readText(at);
+        at += textFieldLength(at);
+        String email = readText(at);
+        return new EmployeeDto(ids[slot], firstName, lastName, email, orNull(departmentIds[slot]), null,
+                versions[slot], orNull(managerIds[slot]));
+    }
+
+    private String readText(int at) {
+        int length = (int) INT.get(text, at);
+        return length == NULL_TEXT ? null : new String(text, at + Integer.BYTES, length, StandardCharsets.UTF_8);
+    }
+
+    private int textFieldLength(int at) {
+        int length = (int) INT.get(text, at);
+        return Integer.BYTES + (length == NULL_TEXT ? 0 : length);
+    }
+
+    private int textLength(int at) {
+        int end = at;
+        for (int field = 0; field < 3; field++) {
+            end += textFieldLength(end);
+        }
+        return end - at;
+    }
+
+    private static byte[] encode(EmployeeDto employee) {
+        byte[][] fields = {utf8(employee.getFirstName()), utf8(employee.getLastName()), utf8(employee.getEmail())};
+        int length = 0;
+        for (byte[] field : fields) {
+            length += Integer.BYTES + (field == null ? 0 : field.length);
+        }
+        byte[] encoded = new byte[length];
+        int at = 0;
+        for (byte[] field : fields) {
+            INT.set(encoded, at, field == null ? NULL_TEXT : field.length);
+            at += Integer.BYTES;
+            if (field != null) {
+                System.arraycopy(field, 0, encoded, at, field.length);
+                at += field.length;
+            }
+        }
+        return encoded;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int append(byte[] encoded) {
+        if (textUsed + encoded.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textUsed + encoded.length));
+        }
+        int at = textUsed;
+        System.arraycopy(encoded, 0, text, at, encoded.length);
+        textUsed += encoded.length;
+        return at;
+    }
+
+    private void ensureRows(int rows) {
+        if (rows <= ids.length) return;
+        int capacity = Math.max(ids.length * 2, rows);
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        departmentIds = Arrays.copyOf(departmentIds, capacity);
+        managerIds = Arrays.copyOf(managerIds, capacity);
+        textAt = Arrays.copyOf(textAt, capacity);
+    }
+
+    private void shift(int from, int to, int count) {
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(versions, from, versions, to, count);
+        System.arraycopy(departmentIds, from, departmentIds, to, count);
+        System.arraycopy(managerIds, from, managerIds, to, count);
+        System.arraycopy(textAt, from, textAt, to, count);
+    }
+
+    private void compactIfSparse() {
+        if (removed * 4 <= size && deadText * 2 <= textUsed) return;
+        byte[] packed = new byte[Math.max(1024, textUsed - deadText)];
+        int live = 0;
+        int written = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (versions[slot] == REMOVED) continue;
+            int length = textLength(textAt[slot]);
+            System.arraycopy(text, textAt[slot], packed, written, length);
+            ids[live] = ids[slot];
+            versions[live] = versions[slot];
+            departmentIds[live] = departmentIds[slot];
+            managerIds[live] = managerIds[slot];
+            textAt[live] = written;
+            written += length;
+            live++;
+        }
+        size = live;
+        removed = 0;
+        text = packed;
+        textUsed = written;
+        deadText = 0;
+    }
+
+    private static long orNone(Long id) {
+        return id == null ? 0 : id;
+    }
+
+    private static Long orNull(long id) {
+        return id == 0 ? null : id;
+    }
+}
@@ -0,0 +1,177 @@
+package uk.gitsoft.ems.readmodel;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.tx.AfterCommit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional in-memory copy of the employee directory (ems.read-model.enabled)
+ * that serves getEmployeeById and getAllEmployees without a query.
+ *
+ * Rows are held in EmployeeColumns; department names are not stored per row but
+ * looked up by department id in the department snapshot, so a rename never
+ * touches the model. Local writes are applied by the service hooks once their
+ * transaction commits; other instances' writes, bulk jobs and imports arrive
+ * through EmployeeReadModelLoader's change-log catch-up. While a load or
+ * catch-up is reading the database, ids written by the hooks are recorded so the
+ * (older) rows it read for them are skipped, as in the search index.
+ */
+@Component
+public class EmployeeReadModel {
+
+    private final boolean enabled;
+    private final DepartmentSnapshotCache departmentCache;
+
+    private volatile EmployeeColumns columns = new EmployeeColumns();
+    private volatile Set<Long> touchedDuringSync;
+    private volatile boolean ready;
+    // Every change-log entry up to this token is reflected in the columns
+    private volatile long appliedToken;
+
+    public EmployeeReadModel(DepartmentSnapshotCache departmentCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${ems.read-model.enabled:false}") boolean enabled) {
+        this.departmentCache = departmentCache;
+        this.enabled = enabled;
+        Gauge.builder("ems.read-model.rows", this, model -> model.columns.size())
+                .description("Employees held in the in-memory read model")
+                .register(meterRegistry);
+        Gauge.builder("ems.read-model.text-bytes", this, model -> model.columns.textBytes())
+                .description("Live bytes in the read model's text arena")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public Optional<EmployeeDto> find(Long employeeId) {
+        if (employeeId == null) return Optional.empty();
+        return Optional.ofNullable(columns.get(employeeId)).map(this::withDepartmentName);
+    }
+
+    public List<EmployeeDto> findAll() {
+        List<EmployeeDto> employees = columns.all();
+        employees.forEach(this::withDepartmentName);
+        return employees;
+    }
+
+    public void put(EmployeeDto employee) {
+        if (!enabled) return;
+        AfterCommit.run(() -> apply(employee));
+    }
+
+    public void remove(Long employeeId) {
+        if (!enabled) return;
+        AfterCommit.run(() -> applyRemove(employeeId));
+    }
+
+    private synchronized void apply(EmployeeDto employee) {
+        touch(employee.getId());
+        columns.put(employee);
+    }
+
+    private synchronized void applyRemove(Long employeeId) {
+        touch(employeeId);
+        columns.remove(employeeId);
+    }
+
+    private void touch(Long employeeId) {
+        Set<Long> touched = touchedDuringSync;
+        if (touched != null) touched.add(employeeId);
+    }
+
+    private EmployeeDto withDepartmentName(EmployeeDto employee) {
+        employee.setDepartmentName(departmentCache.find(employee.getDepartmentId())
+                .map(DepartmentDto::getDepartmentName)
+                .orElse(null));
+        return employee;
+    }
+
+    long appliedToken() {
+        return appliedToken;
+    }
+
+    // A load starts from empty columns; reads go to the database until the loader calls markReady
+    synchronized void beginLoad() {
+        ready = false;
+        touchedDuringSync = ConcurrentHashMap.newKeySet();
+        columns = new EmployeeColumns();
+    }
+
+    synchronized void load(EmployeeDto employee) {
+        Set<Long> touched = touchedDuringSync;
+        if (touched != null && touched.contains(employee.getId())) return;
+        columns.put(employee);
+    }
+
+    synchronized void endLoad(long token) {
+        appliedToken = token;
+        touchedDuringSync = null;
+    }
+
+    synchronized void abortLoad() {
+        touchedDuringSync = null;
+        ready = false;
+    }
+
+    // Local writes made before this are in the change log, so the catch-up that follows replays them
+    synchronized void restore(EmployeeColumns restored, long token) {
+        ready = false;
+        columns = restored;
+        appliedToken = token;
+    }
+
+    void markReady() {
+        ready = true;
+    }
+
+    synchronized void beginCatchUp() {
+        touchedDuringSync = ConcurrentHashMap.newKeySet();
+    }
+
+    // Rows read for the changed ids; ids with no row left were deleted
+    synchronized void endCatchUp(Collection<EmployeeDto> current, Collection<Long> gone, long token) {
+        Set<Long> touched = touchedDuringSync;
+        for (EmployeeDto employee : current) {
+            if (!touched.contains(employee.getId())) columns.put(employee);
+        }
+        for (Long employeeId : gone) {
+            if (!touched.contains(employeeId)) columns.remove(employeeId);
+        }
+        appliedToken = token;
+        touchedDuringSync = null;
+    }
+
+    synchronized void abortCatchUp() {
+        touchedDuringSync = null;
+    }
+
+    // The token is read first: the columns already cover at least that much when they are written
+    void writeSnapshot(Path file) throws IOException {
+        long token = appliedToken;
+        columns.writeTo(file, token);
+    }
+}
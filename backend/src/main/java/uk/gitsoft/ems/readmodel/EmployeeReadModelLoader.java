@@ -0,0 +1,185 @@
+package uk.gitsoft.ems.readmodel;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.changes.EmployeeChangeLog;
+import uk.gitsoft.ems.config.ReadRouting;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Fills the employee read model and keeps it in step with the change log.
+ *
+ * At startup it maps the snapshot file (ems.read-model.snapshot-path) back in if
+ * there is one and the change log still holds every change since it was taken;
+ * otherwise it streams the table once, as the search index loader does. Either
+ * way it then replays the change log from the model's token: each changed id is
+ * re-read from the primary, and an id with no row left is removed. The same
+ * catch-up runs every refresh interval for writes made elsewhere. A snapshot is
+ * written every snapshot interval and on shutdown.
+ */
+@Component
+public class EmployeeReadModelLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeReadModelLoader.class);
+
+    static final int CATCH_UP_PAGE = 1_000;
+
+    private final EmployeeReadModel readModel;
+    private final EmployeeRepository employeeRepository;
+    private final EmployeeChangeLog changeLog;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path snapshotFile;
+
+    private volatile boolean loading;
+
+    public EmployeeReadModelLoader(EmployeeReadModel readModel,
+                                   EmployeeRepository employeeRepository,
+                                   EmployeeChangeLog changeLog,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${ems.read-model.snapshot-path:}") String snapshotPath) {
+        this.readModel = readModel;
+        this.employeeRepository = employeeRepository;
+        this.changeLog = changeLog;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.snapshotFile = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!readModel.isEnabled()) return;
+        loading = true;
+        Thread loader = new Thread(this::start, "employee-read-model-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    synchronized void start() {
+        loading = true;
+        long started = System.nanoTime();
+        try {
+            String source = restore() ? "snapshot" : "database";
+            if (source.equals("database")) load();
+            catchUp();
+            readModel.markReady();
+            log.info("Employee read model loaded from the {}: {} employees in {} ms",
+                    source, readModel.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            readModel.abortLoad();
+            log.error("Employee read model load failed; reads will use the database until the next refresh", ex);
+        } finally {
+            loading = false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ems.read-model.refresh-interval:1s}")
+    public void refresh() {
+        // Checked before taking the lock, so the scheduler thread never waits out a startup load
+        if (!readModel.isEnabled() || loading) return;
+        synchronized (this) {
+            if (!readModel.isReady()) {
+                start();
+                return;
+            }
+            try {
+                catchUp();
+            } catch (RuntimeException ex) {
+                log.warn("Employee read model catch-up failed; retrying on the next refresh", ex);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ems.read-model.snapshot-interval:10m}",
+            initialDelayString = "${ems.read-model.snapshot-interval:10m}")
+    public void snapshot() {
+        if (snapshotFile == null || !readModel.isReady()) return;
+        long started = System.nanoTime();
+        try {
+            readModel.writeSnapshot(snapshotFile);
+            log.debug("Employee read model snapshot written: {} employees in {} ms",
+                    readModel.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not write the employee read model snapshot to {}", snapshotFile, ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        snapshot();
+    }
+
+    // False when there is no usable snapshot and the table has to be read instead
+    private boolean restore() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) return false;
+        EmployeeColumns.Loaded loaded;
+        try {
+            loaded = EmployeeColumns.readFrom(snapshotFile);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable employee read model snapshot {}", snapshotFile, ex);
+            return false;
+        }
+        EmployeeChangeLog.Bounds bounds = ReadRouting.onPrimary(changeLog::bounds);
+        if (bounds.oldest() > loaded.token() + 1 || bounds.newest() < loaded.token()) {
+            // Changes since the snapshot were pruned, or it belongs to another database
+            log.info("Employee read model snapshot at token {} is outside the change log ({}..{}); reloading",
+                    loaded.token(), bounds.oldest(), bounds.newest());
+            return false;
+        }
+        readModel.restore(loaded.columns(), loaded.token());
+        return true;
+    }
+
+    private void load() {
+        readModel.beginLoad();
+        // The token is taken first, so the catch-up replays anything the stream might miss
+        long token = ReadRouting.onPrimary(changeLog::latestToken);
+        ReadRouting.onPrimary(() -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<EmployeeDto> employees = employeeRepository.streamAllDtos()) {
+                employees.forEach(readModel::load);
+            }
+        }));
+        readModel.endLoad(token);
+    }
+
+    private void catchUp() {
+        while (true) {
+            long since = readModel.appliedToken();
+            long upTo = ReadRouting.onPrimary(changeLog::latestToken);
+            if (upTo <= since) return;
+            List<EmployeeChangeLog.Change> changes = ReadRouting.onPrimary(() -> changeLog.read(since, upTo, CATCH_UP_PAGE));
+            if (changes.isEmpty()) return;
+            Set<Long> changed = new LinkedHashSet<>();
+            changes.forEach(change -> changed.add(change.employeeId()));
+
+            readModel.beginCatchUp();
+            try {
+                List<EmployeeDto> current = ReadRouting.onPrimary(() -> employeeRepository.findDtosByIdIn(changed));
+                Set<Long> gone = new LinkedHashSet<>(changed);
+                current.forEach(employee -> gone.remove(employee.getId()));
+                boolean lastPage = changes.size() < CATCH_UP_PAGE;
+                readModel.endCatchUp(current, gone, lastPage ? upTo : changes.get(changes.size() - 1).token());
+            } catch (RuntimeException ex) {
+                readModel.abortCatchUp();
+                throw ex;
+            }
+            if (changes.size() < CATCH_UP_PAGE) return;
+        }
+    }
+}
@@ -1,7 +1,157 @@
 package uk.gitsoft.ems.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gitsoft.ems.dto.DepartmentHeadcountDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.dto.ReportingHeadcountDto;
 import uk.gitsoft.ems.entity.Employee;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+
+    // Read-side projections: one joined select straight into EmployeeDto, no managed entities
+
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            where e.id = :id
+            """)
+    Optional<EmployeeDto> findDtoById(@Param("id") Long id);
+
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            order by e.id asc
+            """)
+    List<EmployeeDto> findAllDtos();
+
+    /**
+     * Keyset page ordered by id: rows strictly after the given id, with optional filters.
+     * Null filter parameters are ignored. Cost stays flat however deep the client pages,
+     * because MySQL seeks on the primary key instead of skipping OFFSET rows.
+     */
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            where e.id > :after
+              and (:departmentId is null or d.id = :departmentId)
+              and (:namePrefix is null or e.firstname like concat(:namePrefix, '%') escape '\\'
+                                       or e.lastname like concat(:namePrefix, '%') escape '\\')
+              and (:email is null or e.email = :email)
+            order by e.id asc
+            """)
+    List<EmployeeDto> findPage(@Param("after") long after,
+                               @Param("departmentId") Long departmentId,
+                               @Param("namePrefix") String namePrefix,
+                               @Param("email") String email,
+                               Limit limit);
+
+    /**
+     * Streams every employee in id order from a server-side cursor.
+     *
+     * The department is join-fetched because the connection is busy with the open
+     * result set and cannot serve the per-row selects an eager association would issue.
+     * Rows arrive in fetch-size batches (MySQL needs useCursorFetch=true on the URL).
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select e from Employee e left join fetch e.department order by e.id asc")
+    Stream<Employee> streamAllForExport();
+
+    // Same cursor-based stream as the export, but projected: used to build in-memory read structures
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            order by e.id asc
+            """)
+    Stream<EmployeeDto> streamAllDtos();
+
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            where e.email in :emails
+            """)
+    List<EmployeeDto> findDtosByEmailIn(@Param("emails") Collection<String> emails);
+
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            where e.id in :ids
+            order by e.id asc
+            """)
+    List<EmployeeDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Reporting lines: direct reports by the manager_id index, everything deeper through the closure table
+
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from Employee e left join e.department d
+            where e.manager.id = :managerId
+            order by e.id asc
+            """)
+    List<EmployeeDto> findDirectReports(@Param("managerId") Long managerId);
+
+    // Keyset page over everyone below the manager, at any depth; a range scan on the closure primary key
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from ReportingLine r join Employee e on e.id = r.descendantId left join e.department d
+            where r.ancestorId = :managerId and r.descendantId > :after
+            order by r.descendantId asc
+            """)
+    List<EmployeeDto> findSubtreePage(@Param("managerId") Long managerId, @Param("after") long after, Limit limit);
+
+    // Managers above the employee, direct manager first
+    @Query("""
+            select new uk.gitsoft.ems.dto.EmployeeDto(e.id, e.firstname, e.lastname, e.email, d.id, d.departmentName, e.version, e.manager.id)
+            from ReportingLine r join Employee e on e.id = r.ancestorId left join e.department d
+            where r.descendantId = :employeeId
+            order by r.depth asc
+            """)
+    List<EmployeeDto> findManagementChain(@Param("employeeId") Long employeeId);
+
+    // Direct reports are the depth-1 rows, so both counts come from one range scan; empty without reports
+    @Query("""
+            select new uk.gitsoft.ems.dto.ReportingHeadcountDto(r.ancestorId, sum(case when r.depth = 1 then 1L else 0L end), count(r))
+            from ReportingLine r
+            where r.ancestorId = :managerId
+            group by r.ancestorId
+            """)
+    Optional<ReportingHeadcountDto> findHeadcount(@Param("managerId") Long managerId);
+
+    @Query("select e.email from Employee e where e.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Headcount per department in one GROUP BY; departments without employees are absent
+    @Query("""
+            select new uk.gitsoft.ems.dto.DepartmentHeadcountDto(d.id, d.departmentName, count(e.id))
+            from Employee e join e.department d
+            group by d.id, d.departmentName
+            """)
+    List<DepartmentHeadcountDto> countByDepartment();
+
+    long countByDepartmentIsNull();
+
+    // Single DELETE without loading the row first; returns the number of rows removed (0 or 1)
+    @Transactional
+    @Modifying
+    @Query("delete from Employee e where e.id = :id")
+    int deleteByIdReturningCount(@Param("id") Long id);
 }
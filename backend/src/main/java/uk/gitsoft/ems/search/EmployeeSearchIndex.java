@@ -0,0 +1,215 @@
+package uk.gitsoft.ems.search;
+
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.tx.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-process prefix index over employee first names, last names and emails for
+ * type-ahead search.
+ *
+ * Every name part and the email are lower-cased into tokens; each (token, id)
+ * pair is one entry in a sorted concurrent set, so all employees with a token
+ * starting with a prefix form one contiguous range. Reads never lock; writes
+ * (service hooks, bulk import, startup load) are serialised, and the hooks'
+ * changes are applied only once their transaction commits. Multi-word queries
+ * use the longest term to pick candidates and require every other term to
+ * prefix-match one of the candidate's tokens.
+ */
+@Component
+public class EmployeeSearchIndex {
+
+    // Bounds the work for very short prefixes ("a") on large directories
+    static final int MAX_CANDIDATES = 5_000;
+    // Names split on whitespace and hyphens so "Mary-Jane" is found by "jane"; queries split on whitespace only
+    private static final String NAME_SEPARATORS = "[\\s\\-]+";
+
+    private record Posting(String token, long id) implements Comparable<Posting> {
+        private static final Comparator<Posting> ORDER =
+                Comparator.comparing(Posting::token).thenComparingLong(Posting::id);
+
+        @Override
+        public int compareTo(Posting other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private record Entry(EmployeeDto employee, List<String> tokens) {
+    }
+
+    private record Hit(Entry entry, int score) {
+    }
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparing(hit -> nullToEmpty(hit.entry().employee().getLastName()), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(hit -> nullToEmpty(hit.entry().employee().getFirstName()), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(hit -> hit.entry().employee().getId());
+
+    private final NavigableSet<Posting> postings = new ConcurrentSkipListSet<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // While the startup load runs, ids written by hooks are recorded so the (older) loaded row is skipped
+    private volatile Set<Long> touchedDuringLoad;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Optional<EmployeeDto> find(Long employeeId) {
+        Entry entry = entries.get(employeeId);
+        return entry == null ? Optional.empty() : Optional.of(entry.employee());
+    }
+
+    public void put(EmployeeDto employee) {
+        AfterCommit.run(() -> apply(employee));
+    }
+
+    public void remove(Long employeeId) {
+        AfterCommit.run(() -> applyRemove(employeeId));
+    }
+
+    private synchronized void apply(EmployeeDto employee) {
+        Set<Long> touched = touchedDuringLoad;
+        if (touched != null) touched.add(employee.getId());
+        index(employee);
+    }
+
+    private synchronized void applyRemove(Long employeeId) {
+        Set<Long> touched = touchedDuringLoad;
+        if (touched != null) touched.add(employeeId);
+        Entry old = entries.remove(employeeId);
+        if (old != null) {
+            old.tokens().forEach(token -> postings.remove(new Posting(token, employeeId)));
+        }
+    }
+
+    synchronized void beginLoad() {
+        ready = false;
+        touchedDuringLoad = ConcurrentHashMap.newKeySet();
+    }
+
+    // Loaded rows lose to anything a hook wrote after the load started
+    synchronized void load(EmployeeDto employee) {
+        Set<Long> touched = touchedDuringLoad;
+        if (touched != null && touched.contains(employee.getId())) return;
+        index(employee);
+    }
+
+    synchronized void endLoad() {
+        touchedDuringLoad = null;
+        ready = true;
+    }
+
+    synchronized void abortLoad() {
+        touchedDuringLoad = null;
+        ready = false;
+    }
+
+    /**
+     * @return up to limit employees matching every term of the query, best first
+     */
+    public List<EmployeeDto> search(String query, int limit) {
+        List<String> terms = tokenize(query, "\\s+");
+        if (terms.isEmpty() || limit < 1) return List.of();
+
+        String driver = terms.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+        NavigableSet<Posting> range = postings.subSet(
+                new Posting(driver, Long.MIN_VALUE), true,
+                new Posting(driver + Character.MAX_VALUE, Long.MIN_VALUE), false);
+
+        // Min-heap of the best `limit` hits seen so far
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        Set<Long> seen = new HashSet<>();
+        int scanned = 0;
+        for (Posting posting : range) {
+            if (++scanned > MAX_CANDIDATES) break;
+            if (!seen.add(posting.id())) continue;
+            Entry entry = entries.get(posting.id());
+            if (entry == null) continue; // removed concurrently
+            int score = score(entry.tokens(), terms);
+            if (score < 0) continue;
+            best.add(new Hit(entry, score));
+            if (best.size() > limit) best.poll();
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANKING);
+        return hits.stream().map(hit -> hit.entry().employee()).toList();
+    }
+
+    private void index(EmployeeDto employee) {
+        long id = employee.getId();
+        Entry old = entries.get(id);
+        List<String> tokens = tokensOf(employee);
+        if (old != null) {
+            old.tokens().stream()
+                    .filter(token -> !tokens.contains(token))
+                    .forEach(token -> postings.remove(new Posting(token, id)));
+        }
+        tokens.forEach(token -> postings.add(new Posting(token, id)));
+        entries.put(id, new Entry(employee, tokens));
+    }
+
+    // Exact token matches outrank prefix matches; -1 when some term matches nothing
+    private static int score(List<String> tokens, List<String> terms) {
+        int score = 0;
+        for (String term : terms) {
+            int termScore = -1;
+            for (String token : tokens) {
+                if (token.equals(term)) {
+                    termScore = 2;
+                    break;
+                }
+                if (token.startsWith(term)) termScore = 1;
+            }
+            if (termScore < 0) return -1;
+            score += termScore;
+        }
+        return score;
+    }
+
+    private static List<String> tokensOf(EmployeeDto employee) {
+        List<String> tokens = new ArrayList<>(4);
+        for (String value : new String[]{employee.getFirstName(), employee.getLastName()}) {
+            for (String part : tokenize(value, NAME_SEPARATORS)) {
+                if (!tokens.contains(part)) tokens.add(part);
+            }
+        }
+        if (employee.getEmail() != null && !employee.getEmail().isBlank()) {
+            String email = employee.getEmail().trim().toLowerCase(Locale.ROOT);
+            if (!tokens.contains(email)) tokens.add(email);
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static List<String> tokenize(String value, String separators) {
+        if (value == null || value.isBlank()) return List.of();
+        List<String> tokens = new ArrayList<>();
+        for (String part : value.trim().toLowerCase(Locale.ROOT).split(separators)) {
+            if (!part.isEmpty()) tokens.add(part);
+        }
+        return tokens;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gitsoft.ems.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.config.ReadRouting;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.util.stream.Stream;
+
+/**
+ * Fills the search index from the database once the application is up.
+ *
+ * The load streams a projection through a server-side cursor on a background
+ * thread, so startup is not delayed and the table is never held in memory.
+ * Until it finishes, searches fall back to a database prefix query.
+ */
+@Component
+public class EmployeeSearchIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeSearchIndexLoader.class);
+
+    private final EmployeeSearchIndex searchIndex;
+    private final EmployeeRepository employeeRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public EmployeeSearchIndexLoader(EmployeeSearchIndex searchIndex,
+                                     EmployeeRepository employeeRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.searchIndex = searchIndex;
+        this.employeeRepository = employeeRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "employee-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    void load() {
+        long started = System.nanoTime();
+        searchIndex.beginLoad();
+        try {
+            // The primary, so the load cannot replay rows older than writes already indexed
+            ReadRouting.onPrimary(() -> readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<EmployeeDto> employees = employeeRepository.streamAllDtos()) {
+                    employees.forEach(searchIndex::load);
+                }
+            }));
+            searchIndex.endLoad();
+            log.info("Employee search index loaded: {} employees in {} ms",
+                    searchIndex.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            searchIndex.abortLoad();
+            log.error("Employee search index load failed; searches will use the database", ex);
+        }
+    }
+}
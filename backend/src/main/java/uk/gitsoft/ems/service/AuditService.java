@@ -0,0 +1,14 @@
+package uk.gitsoft.ems.service;
+
+import uk.gitsoft.ems.dto.AuditPageDto;
+
+public interface AuditService {
+
+    /**
+     * Committed writes to one employee, oldest first, including its deletion. Entries
+     * reach the history shortly after the write, once the audit writer has flushed them.
+     */
+    AuditPageDto getEmployeeHistory(Long employeeId, Long after, Integer limit);
+
+    AuditPageDto getDepartmentHistory(Long departmentId, Long after, Integer limit);
+}
@@ -0,0 +1,13 @@
+package uk.gitsoft.ems.service;
+
+import uk.gitsoft.ems.dto.BulkJobDto;
+import uk.gitsoft.ems.dto.BulkJobRequestDto;
+
+public interface BulkJobService {
+
+    BulkJobDto submit(BulkJobRequestDto request);
+
+    BulkJobDto getJob(String jobId);
+
+    BulkJobDto cancel(String jobId);
+}
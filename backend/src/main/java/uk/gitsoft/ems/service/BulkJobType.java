@@ -0,0 +1,13 @@
+package uk.gitsoft.ems.service;
+
+/**
+ * Set-based operations a bulk job can run over the employees matching its filter.
+ */
+public enum BulkJobType {
+    // Reassign every employee of departmentId to targetDepartmentId
+    MOVE_DEPARTMENT,
+    // Delete every matching employee
+    DELETE,
+    // Set targetDepartmentId, firstName and/or lastName on every matching employee
+    PATCH
+}
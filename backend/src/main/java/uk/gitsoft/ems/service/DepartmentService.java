@@ -1,6 +1,8 @@
 package uk.gitsoft.ems.service;
 
+import uk.gitsoft.ems.cache.CachedJson;
 import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.DepartmentStatsDto;
 
 import java.util.List;
 
@@ -13,5 +15,9 @@ public interface DepartmentService {
 
     List<DepartmentDto> getAllDepartments();
 
+    CachedJson getAllDepartmentsJson();
+
+    DepartmentStatsDto getDepartmentStats();
+
     void deleteDepartmentById(Long departmentId);
 }
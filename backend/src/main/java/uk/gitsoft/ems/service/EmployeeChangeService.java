@@ -0,0 +1,12 @@
+package uk.gitsoft.ems.service;
+
+import uk.gitsoft.ems.dto.EmployeeChangesDto;
+
+public interface EmployeeChangeService {
+
+    /**
+     * Changes after the given token; with no token, an empty result whose
+     * nextToken is the current position of the log.
+     */
+    EmployeeChangesDto getChanges(Long since, Integer limit);
+}
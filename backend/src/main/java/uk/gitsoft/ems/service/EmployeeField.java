@@ -0,0 +1,73 @@
+package uk.gitsoft.ems.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Employee fields a client can pick with ?fields=, each with the column that
+ * holds it. Only departmentName needs the departments join.
+ */
+public enum EmployeeField {
+    ID("id", "e.id", false, false),
+    FIRST_NAME("firstName", "e.first_name", true, false),
+    LAST_NAME("lastName", "e.last_name", true, false),
+    EMAIL("email", "e.email_id", true, false),
+    DEPARTMENT_ID("departmentId", "e.department_id", false, false),
+    DEPARTMENT_NAME("departmentName", "d.department_name", true, true),
+    VERSION("version", "e.version", false, false),
+    MANAGER_ID("managerId", "e.manager_id", false, false);
+
+    private final String jsonName;
+    private final String column;
+    private final boolean text;
+    private final boolean needsDepartment;
+
+    EmployeeField(String jsonName, String column, boolean text, boolean needsDepartment) {
+        this.jsonName = jsonName;
+        this.column = column;
+        this.text = text;
+        this.needsDepartment = needsDepartment;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    // Text columns are written as strings, the others as numbers
+    public boolean isText() {
+        return text;
+    }
+
+    public boolean needsDepartment() {
+        return needsDepartment;
+    }
+
+    /**
+     * Parses a comma-separated field list (the JSON names, as on EmployeeDto).
+     * The result keeps the declaration order, so the same set always gives the same output.
+     */
+    public static Set<EmployeeField> parse(String fields) {
+        Set<EmployeeField> selected = EnumSet.noneOf(EmployeeField.class);
+        if (fields != null) {
+            for (String name : fields.split(",")) {
+                if (name.isBlank()) continue;
+                selected.add(fromJsonName(name.trim()));
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        return selected;
+    }
+
+    private static EmployeeField fromJsonName(String name) {
+        for (EmployeeField field : values()) {
+            if (field.jsonName.equals(name)) return field;
+        }
+        throw new IllegalArgumentException("Unknown field: " + name);
+    }
+}
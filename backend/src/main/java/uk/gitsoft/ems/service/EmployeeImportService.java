@@ -0,0 +1,11 @@
+package uk.gitsoft.ems.service;
+
+import uk.gitsoft.ems.dto.BulkImportResultDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface EmployeeImportService {
+
+    BulkImportResultDto importEmployees(InputStream in, ImportFormat format, Integer chunkSize) throws IOException;
+}
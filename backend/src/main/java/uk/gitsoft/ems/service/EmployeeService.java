@@ -1,8 +1,14 @@
 package uk.gitsoft.ems.service;
 
 import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.dto.EmployeeFieldsPageDto;
+import uk.gitsoft.ems.dto.EmployeePageDto;
+import uk.gitsoft.ems.dto.ReportingHeadcountDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Set;
 
 public interface EmployeeService {
 
@@ -10,11 +16,30 @@ public interface EmployeeService {
 
     EmployeeDto getEmployeeById(Long employeeId);
 
+    List<EmployeeDto> getEmployeesByIds(List<Long> employeeIds);
+
     List<EmployeeDto> getAllEmployees();
 
+    EmployeePageDto getEmployeesPage(Long after, Integer limit, Long departmentId, String namePrefix, String email);
+
+    EmployeeFieldsPageDto getEmployeeFieldsPage(Set<EmployeeField> fields, Long after, Integer limit,
+                                                Long departmentId, String namePrefix, String email);
+
+    void exportEmployees(ExportFormat format, OutputStream out) throws IOException;
+
     EmployeeDto updateEmployee(long employeeId, EmployeeDto employeeDto);
 
     void deleteEmployeeById(Long employeeId);
 
     EmployeeDto patchEmployee(Long employeeId, EmployeeDto employeeDto);
+
+    List<EmployeeDto> searchEmployees(String query, Integer limit);
+
+    List<EmployeeDto> getDirectReports(Long managerId);
+
+    EmployeePageDto getReportingSubtree(Long managerId, Long after, Integer limit);
+
+    List<EmployeeDto> getManagementChain(Long employeeId);
+
+    ReportingHeadcountDto getReportingHeadcount(Long managerId);
 }
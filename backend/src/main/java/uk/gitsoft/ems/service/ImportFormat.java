@@ -0,0 +1,23 @@
+package uk.gitsoft.ems.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Payload formats accepted by the bulk employee import.
+ */
+public enum ImportFormat {
+    JSON,
+    NDJSON,
+    CSV;
+
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            throw new IllegalArgumentException("Content-Type is required");
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) return JSON;
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType("application/x-ndjson"))) return NDJSON;
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType("text/csv"))) return CSV;
+        throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+    }
+}
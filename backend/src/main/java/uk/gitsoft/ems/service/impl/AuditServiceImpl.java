@@ -0,0 +1,63 @@
+package uk.gitsoft.ems.service.impl;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gitsoft.ems.audit.AuditEvent;
+import uk.gitsoft.ems.audit.AuditLog;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.dto.AuditEntryDto;
+import uk.gitsoft.ems.dto.AuditPageDto;
+import uk.gitsoft.ems.exception.ResourceNotFoundException;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.service.AuditService;
+
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+public class AuditServiceImpl implements AuditService {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 1000;
+
+    private final AuditLog auditLog;
+    private final EmployeeRepository employeeRepository;
+    private final DepartmentSnapshotCache departmentCache;
+
+    @Override
+    @Transactional(readOnly = true)
+    public AuditPageDto getEmployeeHistory(Long employeeId, Long after, Integer limit) {
+        AuditPageDto page = read(AuditEvent.Entity.EMPLOYEE, employeeId, after, limit);
+        // A deleted employee keeps its history; only an id that never had any is unknown
+        if (page.getContent().isEmpty() && after == null && !employeeRepository.existsById(employeeId)) {
+            throw new ResourceNotFoundException("Employee not found: " + employeeId);
+        }
+        return page;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AuditPageDto getDepartmentHistory(Long departmentId, Long after, Integer limit) {
+        AuditPageDto page = read(AuditEvent.Entity.DEPARTMENT, departmentId, after, limit);
+        if (page.getContent().isEmpty() && after == null && !departmentCache.exists(departmentId)) {
+            throw new ResourceNotFoundException("Department not found: " + departmentId);
+        }
+        return page;
+    }
+
+    private AuditPageDto read(AuditEvent.Entity entity, long entityId, Long after, Integer limit) {
+        if (after != null && after < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        List<AuditEntryDto> rows = auditLog.read(entity, entityId, after == null ? 0L : after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<AuditEntryDto> content = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? content.get(content.size() - 1).getId() : null;
+        return new AuditPageDto(content, nextCursor);
+    }
+}
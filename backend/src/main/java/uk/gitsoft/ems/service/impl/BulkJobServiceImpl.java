@@ -0,0 +1,260 @@
+package uk.gitsoft.ems.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gitsoft.ems.audit.AuditTrail;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.dto.BulkJobDto;
+import uk.gitsoft.ems.dto.BulkJobRequestDto;
+import uk.gitsoft.ems.exception.ResourceNotFoundException;
+import uk.gitsoft.ems.service.BulkJobService;
+import uk.gitsoft.ems.service.BulkJobStatus;
+import uk.gitsoft.ems.service.BulkJobType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bulk employee jobs on a small background pool.
+ *
+ * A job walks the matching employees in id order, one chunk at a time: each
+ * chunk is one UPDATE or DELETE on at most chunkSize rows in its own short
+ * transaction (see EmployeeBulkWriter), so no lock is held for longer than one
+ * chunk and other writes interleave freely. Cancellation is checked between
+ * chunks; chunks already committed stay committed. Jobs live in memory only and
+ * are forgotten ems.jobs.retention after they finish.
+ */
+@Service
+public class BulkJobServiceImpl implements BulkJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkJobServiceImpl.class);
+
+    static final int MAX_CHUNK_SIZE = 10_000;
+
+    private final EmployeeBulkWriter writer;
+    private final DepartmentSnapshotCache departmentCache;
+    private final ThreadPoolExecutor executor;
+    private final int defaultChunkSize;
+    private final long chunkPauseMillis;
+    private final Duration retention;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public BulkJobServiceImpl(EmployeeBulkWriter writer,
+                              DepartmentSnapshotCache departmentCache,
+                              @Value("${ems.jobs.workers:2}") int workers,
+                              @Value("${ems.jobs.max-queued:50}") int maxQueued,
+                              @Value("${ems.jobs.chunk-size:1000}") int defaultChunkSize,
+                              @Value("${ems.jobs.chunk-pause:0ms}") Duration chunkPause,
+                              @Value("${ems.jobs.retention:1h}") Duration retention) {
+        this.writer = writer;
+        this.departmentCache = departmentCache;
+        this.defaultChunkSize = defaultChunkSize;
+        this.chunkPauseMillis = chunkPause.toMillis();
+        this.retention = retention;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-job-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public BulkJobDto submit(BulkJobRequestDto request) {
+        validate(request);
+        purgeFinished();
+        int chunkSize = request.getChunkSize() == null ? defaultChunkSize : request.getChunkSize();
+        // Chunks run on a worker thread, so the audit trail's actor is taken from the submitting request
+        Job job = new Job(UUID.randomUUID().toString(), request, chunkSize, AuditTrail.currentActor());
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.id);
+            throw ex;
+        }
+        return job.toDto();
+    }
+
+    @Override
+    public BulkJobDto getJob(String jobId) {
+        return find(jobId).toDto();
+    }
+
+    @Override
+    public BulkJobDto cancel(String jobId) {
+        Job job = find(jobId);
+        job.cancel();
+        return job.toDto();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        jobs.values().forEach(Job::cancel);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private Job find(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void run(Job job) {
+        if (!job.start()) return; // cancelled while queued
+        BulkJobRequestDto request = job.request;
+        try {
+            job.setTotal(writer.count(request));
+            long afterId = 0;
+            while (!job.isCancelRequested()) {
+                List<EmployeeBulkWriter.Row> chunk = writer.nextChunk(request, afterId, job.chunkSize);
+                if (chunk.isEmpty()) break;
+                int affected = writer.apply(request, chunk, job.actor);
+                job.progress(chunk.size(), affected);
+                afterId = chunk.get(chunk.size() - 1).id();
+                if (chunk.size() < job.chunkSize) break;
+                if (chunkPauseMillis > 0) Thread.sleep(chunkPauseMillis);
+            }
+            job.finish(job.isCancelRequested() ? BulkJobStatus.CANCELLED : BulkJobStatus.SUCCEEDED, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            job.finish(BulkJobStatus.CANCELLED, null);
+        } catch (RuntimeException ex) {
+            log.error("Bulk job {} ({}) failed after {} rows", job.id, request.getType(), job.toDto().getProcessed(), ex);
+            job.finish(BulkJobStatus.FAILED, ex.getMessage());
+        }
+    }
+
+    private void validate(BulkJobRequestDto request) {
+        if (request.getType() == null) {
+            throw new IllegalArgumentException("Job type is required");
+        }
+        Integer chunkSize = request.getChunkSize();
+        if (chunkSize != null && (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE)) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+        boolean filtered = request.getDepartmentId() != null
+                || (request.getNamePrefix() != null && !request.getNamePrefix().isBlank());
+        if (request.getType() == BulkJobType.MOVE_DEPARTMENT) {
+            if (request.getDepartmentId() == null || request.getTargetDepartmentId() == null) {
+                throw new IllegalArgumentException("Moving employees needs departmentId and targetDepartmentId");
+            }
+            if (request.getDepartmentId().equals(request.getTargetDepartmentId())) {
+                throw new IllegalArgumentException("Source and target department must differ");
+            }
+            if (request.getFirstName() != null || request.getLastName() != null) {
+                throw new IllegalArgumentException("Use a PATCH job to change names");
+            }
+        }
+        if (request.getType() == BulkJobType.DELETE && !filtered) {
+            throw new IllegalArgumentException("Deleting employees needs departmentId or namePrefix");
+        }
+        if (request.getType() == BulkJobType.PATCH) {
+            if (request.getTargetDepartmentId() == null && request.getFirstName() == null && request.getLastName() == null) {
+                throw new IllegalArgumentException("A PATCH job needs targetDepartmentId, firstName or lastName");
+            }
+            if ((request.getFirstName() != null && request.getFirstName().isBlank())
+                    || (request.getLastName() != null && request.getLastName().isBlank())) {
+                throw new IllegalArgumentException("Names must not be blank");
+            }
+        }
+        if (request.getTargetDepartmentId() != null && !departmentCache.exists(request.getTargetDepartmentId())) {
+            throw new ResourceNotFoundException("Department not found: " + request.getTargetDepartmentId());
+        }
+    }
+
+    private void purgeFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedBefore(cutoff));
+    }
+
+    private static final class Job {
+        private final String id;
+        private final BulkJobRequestDto request;
+        private final int chunkSize;
+        private final String actor;
+        private final Instant submittedAt = Instant.now();
+        private volatile boolean cancelRequested;
+        private volatile Future<?> future;
+
+        private BulkJobStatus status = BulkJobStatus.QUEUED;
+        private long total;
+        private long processed;
+        private long affected;
+        private int chunks;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String error;
+
+        private Job(String id, BulkJobRequestDto request, int chunkSize, String actor) {
+            this.id = id;
+            this.request = request;
+            this.chunkSize = chunkSize;
+            this.actor = actor;
+        }
+
+        synchronized boolean start() {
+            if (status != BulkJobStatus.QUEUED) return false;
+            status = BulkJobStatus.RUNNING;
+            startedAt = Instant.now();
+            return true;
+        }
+
+        synchronized void setTotal(long total) {
+            this.total = total;
+        }
+
+        synchronized void progress(int rows, int changed) {
+            processed += rows;
+            affected += changed;
+            chunks++;
+        }
+
+        synchronized void finish(BulkJobStatus finalStatus, String message) {
+            status = finalStatus;
+            error = message;
+            finishedAt = Instant.now();
+        }
+
+        boolean isCancelRequested() {
+            return cancelRequested;
+        }
+
+        // A queued job is cancelled at once; a running one stops after its current chunk
+        synchronized void cancel() {
+            if (status.isFinished()) return;
+            cancelRequested = true;
+            if (status == BulkJobStatus.QUEUED) {
+                Future<?> queued = future;
+                if (queued != null) queued.cancel(false);
+                finish(BulkJobStatus.CANCELLED, null);
+            }
+        }
+
+        synchronized boolean finishedBefore(Instant cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        synchronized BulkJobDto toDto() {
+            return new BulkJobDto(id, request.getType(), status, total, processed, affected, chunks,
+                    submittedAt, startedAt, finishedAt, error);
+        }
+    }
+}
@@ -2,13 +2,22 @@ package uk.gitsoft.ems.service.impl;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gitsoft.ems.audit.AuditTrail;
+import uk.gitsoft.ems.cache.CachedJson;
+import uk.gitsoft.ems.cache.DepartmentHeadcounts;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
 import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.DepartmentHeadcountDto;
+import uk.gitsoft.ems.dto.DepartmentStatsDto;
 import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.exception.PreconditionFailedException;
 import uk.gitsoft.ems.exception.ResourceNotFoundException;
 import uk.gitsoft.ems.mapper.DepartmentMapper;
 import uk.gitsoft.ems.repository.DepartmentRepository;
 import uk.gitsoft.ems.service.DepartmentService;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -16,45 +25,87 @@ import java.util.List;
 public class DepartmentServiceImpl implements DepartmentService {
 
     private DepartmentRepository departmentRepository;
+    private DepartmentSnapshotCache departmentCache;
+    private DepartmentHeadcounts headcounts;
+    private AuditTrail auditTrail;
 
     @Override
     public DepartmentDto createDepartment(DepartmentDto departmentDto) {
         Department department = DepartmentMapper.mapToDepartment(departmentDto);
         Department savedDepartment =departmentRepository.save(department);
-
-        return DepartmentMapper.mapToDepartmentDto(savedDepartment);
+        departmentCache.invalidate();
+        DepartmentDto savedDto = DepartmentMapper.mapToDepartmentDto(savedDepartment);
+        auditTrail.departmentCreated(savedDto);
+        return savedDto;
     }
 
     @Override
     public DepartmentDto getDepartmentById(Long departmentId) {
-        Department department = departmentRepository.findById(departmentId).orElseThrow(()-> new ResourceNotFoundException("Department not found: " + departmentId));
-        return DepartmentMapper.mapToDepartmentDto(department);
+        return departmentCache.find(departmentId).orElseThrow(()-> new ResourceNotFoundException("Department not found: " + departmentId));
     }
 
     @Override
+    @Transactional
     public DepartmentDto updateDepartment(Long departmentId, DepartmentDto departmentDto) {
         if (departmentId == null || departmentId <= 0) throw new IllegalArgumentException("Department ID must be provided and greater than zero");
         if (departmentDto.getId() != null && !departmentDto.getId().equals(departmentId)) throw new IllegalArgumentException("ID in path and body must match");
         Department department = departmentRepository.findById(departmentId).orElseThrow(()-> new ResourceNotFoundException("Department not found: " + departmentId));
+        if (departmentDto.getVersion() != null && !departmentDto.getVersion().equals(department.getVersion()))
+            throw new PreconditionFailedException("Department " + departmentId + " is at version " + department.getVersion() + ", not " + departmentDto.getVersion());
+        DepartmentDto before = DepartmentMapper.mapToDepartmentDto(department);
         if (departmentDto.getDepartmentName() != null)
             department.setDepartmentName(departmentDto.getDepartmentName());
         if (departmentDto.getDepartmentDescription() != null)
             department.setDepartmentDescription(departmentDto.getDepartmentDescription());
-        Department updatedDepartment = departmentRepository.save(department);
-        return DepartmentMapper.mapToDepartmentDto(updatedDepartment);
+        // Flush so the returned DTO (and the ETag built from it) carries the new version
+        Department updatedDepartment = departmentRepository.saveAndFlush(department);
+        departmentCache.invalidate();
+        DepartmentDto updatedDto = DepartmentMapper.mapToDepartmentDto(updatedDepartment);
+        auditTrail.departmentUpdated(before, updatedDto);
+        return updatedDto;
     }
 
     @Override
     public List<DepartmentDto> getAllDepartments() {
-        List<Department> departments = departmentRepository.findAll();
-         return departments.stream().map(DepartmentMapper::mapToDepartmentDto).toList();
+        return departmentCache.getAll();
+    }
+
+    @Override
+    public CachedJson getAllDepartmentsJson() {
+        return departmentCache.getAllJson();
+    }
 
+    /**
+     * Served from memory: department list from the snapshot, counts from the
+     * incrementally maintained headcounts. No query once both are loaded.
+     */
+    @Override
+    public DepartmentStatsDto getDepartmentStats() {
+        List<DepartmentDto> departments = departmentCache.getAll();
+        List<DepartmentHeadcountDto> rows = new ArrayList<>(departments.size());
+        long assigned = 0;
+        long largest = 0;
+        int empty = 0;
+        for (DepartmentDto department : departments) {
+            long headcount = headcounts.headcount(department.getId());
+            rows.add(new DepartmentHeadcountDto(department.getId(), department.getDepartmentName(), headcount));
+            assigned += headcount;
+            largest = Math.max(largest, headcount);
+            if (headcount == 0) empty++;
+        }
+        long unassigned = headcounts.unassigned();
+        double average = departments.isEmpty() ? 0 : (double) assigned / departments.size();
+        return new DepartmentStatsDto(assigned + unassigned, unassigned, departments.size(), empty, average, largest, rows);
     }
 
     @Override
+    @Transactional
     public void deleteDepartmentById(Long departmentId) {
         if(departmentRepository.existsById(departmentId)) {
+            DepartmentDto before = departmentCache.find(departmentId).orElse(null);
             departmentRepository.deleteById(departmentId);
+            departmentCache.invalidate();
+            auditTrail.departmentDeleted(departmentId, before);
         } else {
             throw new ResourceNotFoundException("Department not found: " + departmentId);
         }
@@ -0,0 +1,237 @@
+package uk.gitsoft.ems.service.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.audit.AuditTrail;
+import uk.gitsoft.ems.cache.DepartmentHeadcounts;
+import uk.gitsoft.ems.changes.EmployeeChangeLog;
+import uk.gitsoft.ems.dto.BulkJobRequestDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.hierarchy.ReportingLines;
+import uk.gitsoft.ems.readmodel.EmployeeReadModel;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.search.EmployeeSearchIndex;
+import uk.gitsoft.ems.service.BulkJobType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The SQL side of bulk jobs: finds the next chunk of matching employees by
+ * keyset and applies the job's UPDATE or DELETE to exactly those ids in one
+ * short transaction. The job's filter is repeated in the write so a row changed
+ * since it was selected is left alone. The chunk's change-log rows are written in
+ * the same transaction; after it commits the search index, the read model and
+ * department headcounts are brought up to date, as the single-row write paths do. A
+ * deleted manager's reports are reattached first, as for a single delete.
+ */
+@Component
+class EmployeeBulkWriter {
+
+    record Row(long id, Long departmentId) {
+    }
+
+    private record Filter(String sql, List<Object> args) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmployeeRepository employeeRepository;
+    private final EmployeeSearchIndex searchIndex;
+    private final DepartmentHeadcounts headcounts;
+    private final EmployeeChangeLog changeLog;
+    private final ReportingLines reportingLines;
+    private final EmployeeReadModel readModel;
+    private final AuditTrail auditTrail;
+
+    EmployeeBulkWriter(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       EmployeeRepository employeeRepository,
+                       EmployeeSearchIndex searchIndex,
+                       DepartmentHeadcounts headcounts,
+                       EmployeeChangeLog changeLog,
+                       ReportingLines reportingLines,
+                       EmployeeReadModel readModel,
+                       AuditTrail auditTrail) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.employeeRepository = employeeRepository;
+        this.searchIndex = searchIndex;
+        this.headcounts = headcounts;
+        this.changeLog = changeLog;
+        this.reportingLines = reportingLines;
+        this.readModel = readModel;
+        this.auditTrail = auditTrail;
+    }
+
+    long count(BulkJobRequestDto request) {
+        Filter filter = filter(request);
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from employees where 1 = 1" + filter.sql(), Long.class, filter.args().toArray());
+        return count == null ? 0 : count;
+    }
+
+    List<Row> nextChunk(BulkJobRequestDto request, long afterId, int size) {
+        Filter filter = filter(request);
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+        args.addAll(filter.args());
+        args.add(size);
+        return jdbcTemplate.query(
+                "select id, department_id from employees where id > ?" + filter.sql() + " order by id limit ?",
+                (rs, rowNum) -> new Row(rs.getLong(1), rs.getObject(2, Long.class)),
+                args.toArray());
+    }
+
+    /**
+     * @param actor who submitted the job, for the audit trail
+     * @return the number of rows changed or deleted
+     */
+    int apply(BulkJobRequestDto request, List<Row> chunk, String actor) {
+        List<Long> ids = chunk.stream().map(Row::id).toList();
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Filter filter = filter(request);
+        if (request.getType() == BulkJobType.DELETE) {
+            return delete(chunk, ids, placeholders, filter, actor);
+        }
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("update employees set ");
+        if (request.getTargetDepartmentId() != null) {
+            sql.append("department_id = ?, ");
+            args.add(request.getTargetDepartmentId());
+        }
+        if (request.getFirstName() != null) {
+            sql.append("first_name = ?, ");
+            args.add(request.getFirstName());
+        }
+        if (request.getLastName() != null) {
+            sql.append("last_name = ?, ");
+            args.add(request.getLastName());
+        }
+        // Bumped like a single-row update, so ETags and If-Match see the change
+        sql.append("version = version + 1");
+        sql.append(" where id in (").append(placeholders).append(')').append(filter.sql());
+        args.addAll(ids);
+        args.addAll(filter.args());
+
+        Map<Long, EmployeeDto> before = new HashMap<>();
+        Integer affected = transactionTemplate.execute(status -> {
+            employeeRepository.findDtosByIdIn(ids).forEach(employee -> before.put(employee.getId(), employee));
+            int rows = jdbcTemplate.update(sql.toString(), args.toArray());
+            if (rows > 0) {
+                // Rows the filter skipped get a spurious upsert, which a syncing client simply re-reads
+                changeLog.recordUpserts(ids);
+            }
+            return rows;
+        });
+        int changed = affected == null ? 0 : affected;
+        refreshReadModels(chunk, ids, changed, before, actor);
+        return changed;
+    }
+
+    /**
+     * Locks the rows the filter still matches, moves the reports of any managers
+     * among them up a level (ReportingLines.remove, one manager at a time, so a
+     * report whose next manager is also going moves up again) and deletes exactly
+     * the locked rows.
+     */
+    private int delete(List<Row> chunk, List<Long> ids, String placeholders, Filter filter, String actor) {
+        List<Object> args = new ArrayList<>(ids);
+        args.addAll(filter.args());
+        Set<Long> deleted = new HashSet<>();
+        Set<Long> reattached = new LinkedHashSet<>();
+        List<EmployeeDto> deletedBefore = new ArrayList<>();
+        Map<Long, Long> managerBefore = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            deleted.addAll(jdbcTemplate.queryForList("select id from employees where id in (" + placeholders + ")"
+                    + filter.sql() + " for update", Long.class, args.toArray()));
+            if (deleted.isEmpty()) return;
+            deletedBefore.addAll(employeeRepository.findDtosByIdIn(deleted));
+            Set<Long> managers = reportingLines.managersAmong(deleted);
+            if (!managers.isEmpty()) {
+                jdbcTemplate.query("select id, manager_id from employees where manager_id in ("
+                                + String.join(", ", Collections.nCopies(managers.size(), "?")) + ")",
+                        (RowCallbackHandler) rs -> managerBefore.put(rs.getLong(1), rs.getLong(2)),
+                        managers.toArray());
+            }
+            ids.stream().filter(managers::contains).forEach(id -> reattached.addAll(reportingLines.remove(id)));
+            reattached.removeAll(deleted);
+            jdbcTemplate.update("delete from employees where id in (" + String.join(", ",
+                    Collections.nCopies(deleted.size(), "?")) + ")", deleted.toArray());
+            changeLog.recordDeletes(ids.stream().filter(deleted::contains).toList());
+            changeLog.recordUpserts(reattached);
+        });
+        removeFromReadModels(chunk, deleted);
+        auditTrail.employeesDeleted(deletedBefore, actor);
+        if (!reattached.isEmpty()) {
+            List<EmployeeDto> reports = employeeRepository.findDtosByIdIn(reattached);
+            Map<Long, EmployeeDto> reportsBefore = new HashMap<>();
+            for (EmployeeDto report : reports) {
+                searchIndex.put(report);
+                readModel.put(report);
+                reportsBefore.put(report.getId(), new EmployeeDto(report.getId(), report.getFirstName(),
+                        report.getLastName(), report.getEmail(), report.getDepartmentId(), report.getDepartmentName(),
+                        null, managerBefore.get(report.getId())));
+            }
+            auditTrail.employeesUpdated(reportsBefore, reports, actor);
+        }
+        return deleted.size();
+    }
+
+    private void removeFromReadModels(List<Row> chunk, Set<Long> deleted) {
+        for (Row row : chunk) {
+            if (!deleted.contains(row.id())) continue;
+            searchIndex.remove(row.id());
+            readModel.remove(row.id());
+            headcounts.adjust(row.departmentId(), null);
+        }
+    }
+
+    private void refreshReadModels(List<Row> chunk, List<Long> ids, int changed,
+                                   Map<Long, EmployeeDto> before, String actor) {
+        Map<Long, Long> departmentBefore = new HashMap<>();
+        chunk.forEach(row -> departmentBefore.put(row.id(), row.departmentId()));
+
+        List<EmployeeDto> remaining = employeeRepository.findDtosByIdIn(ids);
+        remaining.forEach(employee -> {
+            searchIndex.put(employee);
+            readModel.put(employee);
+        });
+        // Rows the update skipped are unchanged and produce no event
+        auditTrail.employeesUpdated(before, remaining, actor);
+        if (changed != ids.size()) {
+            // Some rows were skipped or changed concurrently; the before/after pairs can't be trusted
+            headcounts.invalidate();
+            return;
+        }
+        remaining.forEach(employee ->
+                headcounts.adjust(departmentBefore.get(employee.getId()), employee.getDepartmentId()));
+    }
+
+    // Name prefixes use '!' as the LIKE escape, which means the same in MySQL and H2
+    private static Filter filter(BulkJobRequestDto request) {
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        if (request.getDepartmentId() != null) {
+            sql.append(" and department_id = ?");
+            args.add(request.getDepartmentId());
+        }
+        if (request.getNamePrefix() != null && !request.getNamePrefix().isBlank()) {
+            String pattern = request.getNamePrefix().trim()
+                    .replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+            sql.append(" and (first_name like ? escape '!' or last_name like ? escape '!')");
+            args.add(pattern);
+            args.add(pattern);
+        }
+        return new Filter(sql.toString(), args);
+    }
+}
@@ -0,0 +1,113 @@
+package uk.gitsoft.ems.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.gitsoft.ems.changes.EmployeeChangeLog;
+import uk.gitsoft.ems.dto.EmployeeChangesDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.entity.EmployeeChange;
+import uk.gitsoft.ems.exception.ChangeTokenExpiredException;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.service.EmployeeChangeService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Delta sync over the employee change log.
+ *
+ * A page of changes is coalesced per employee, so an employee edited ten times
+ * since the client's token is sent once, with its current row. An employee whose
+ * last change is an upsert but which is gone by the time the row is read is
+ * reported as deleted; its tombstone comes later in the log anyway.
+ */
+@Service
+public class EmployeeChangeServiceImpl implements EmployeeChangeService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeChangeServiceImpl.class);
+
+    static final int DEFAULT_LIMIT = 500;
+    static final int MAX_LIMIT = 5000;
+
+    private final EmployeeChangeLog changeLog;
+    private final EmployeeRepository employeeRepository;
+    private final Duration retention;
+
+    public EmployeeChangeServiceImpl(EmployeeChangeLog changeLog,
+                                     EmployeeRepository employeeRepository,
+                                     @Value("${ems.changes.retention:7d}") Duration retention) {
+        this.changeLog = changeLog;
+        this.employeeRepository = employeeRepository;
+        this.retention = retention;
+    }
+
+    @Override
+    public EmployeeChangesDto getChanges(Long since, Integer limit) {
+        int size = limit == null ? DEFAULT_LIMIT : limit;
+        if (size < 1 || size > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (since == null) {
+            return new EmployeeChangesDto(List.of(), List.of(), changeLog.latestToken(), false);
+        }
+        if (since < 0) {
+            throw new IllegalArgumentException("Change token must not be negative");
+        }
+        checkNotExpired(since);
+
+        // One extra row tells us whether another page exists
+        List<EmployeeChangeLog.Change> changes = changeLog.read(since, changeLog.latestToken(), size + 1);
+        boolean hasMore = changes.size() > size;
+        if (hasMore) {
+            changes = changes.subList(0, size);
+        }
+        if (changes.isEmpty()) {
+            return new EmployeeChangesDto(List.of(), List.of(), since, false);
+        }
+
+        Map<Long, EmployeeChange.Type> lastChange = new LinkedHashMap<>();
+        changes.forEach(change -> lastChange.put(change.employeeId(), change.type()));
+        Set<Long> upsertedIds = lastChange.entrySet().stream()
+                .filter(entry -> entry.getValue() == EmployeeChange.Type.UPSERT)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+
+        List<EmployeeDto> upserted = upsertedIds.isEmpty() ? List.of() : employeeRepository.findDtosByIdIn(upsertedIds);
+        Set<Long> found = upserted.stream().map(EmployeeDto::getId).collect(Collectors.toSet());
+        List<Long> deleted = new ArrayList<>();
+        lastChange.keySet().forEach(id -> {
+            if (!found.contains(id)) deleted.add(id);
+        });
+        long nextToken = changes.get(changes.size() - 1).token();
+        return new EmployeeChangesDto(upserted, deleted, nextToken, hasMore);
+    }
+
+    // A token outside the retained log would silently skip changes: before the oldest one, or from a reset database
+    private void checkNotExpired(long since) {
+        EmployeeChangeLog.Bounds bounds = changeLog.bounds();
+        if (bounds.newest() == 0) {
+            if (since == 0) return;
+            throw new ChangeTokenExpiredException("Change token " + since + " is unknown; reload all employees");
+        }
+        if (since < bounds.oldest() - 1 || since > bounds.newest()) {
+            throw new ChangeTokenExpiredException("Change token " + since + " has expired; reload all employees");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ems.changes.prune-interval:1h}", initialDelayString = "${ems.changes.prune-interval:1h}")
+    void prune() {
+        int removed = changeLog.prune(Instant.now().minus(retention));
+        if (removed > 0) {
+            log.info("Pruned {} employee changes older than {}", removed, retention);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package uk.gitsoft.ems.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import uk.gitsoft.ems.dto.EmployeeFieldsPageDto;
+import uk.gitsoft.ems.service.EmployeeField;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The keyset list with ?fields=: selects only the requested columns (plus id
+ * and version, which the cursor and ETag need), joins departments only for
+ * departmentName, and writes each row from the result set straight into the
+ * JSON array, without an entity or EmployeeDto in between.
+ */
+@Component
+class EmployeeFieldsQuery {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    EmployeeFieldsQuery(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    EmployeeFieldsPageDto page(Set<EmployeeField> fields, long after, int pageSize,
+                               Long departmentId, String namePrefix, String email) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("select e.id, e.version");
+        for (EmployeeField field : fields) {
+            sql.append(", ").append(field.getColumn());
+        }
+        sql.append(" from employees e");
+        if (fields.stream().anyMatch(EmployeeField::needsDepartment)) {
+            sql.append(" left join departments d on d.id = e.department_id");
+        }
+        sql.append(" where e.id > ?");
+        args.add(after);
+        if (departmentId != null) {
+            sql.append(" and e.department_id = ?");
+            args.add(departmentId);
+        }
+        if (namePrefix != null) {
+            // '!' as the LIKE escape means the same in MySQL and H2 (see EmployeeBulkWriter)
+            String pattern = namePrefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+            sql.append(" and (e.first_name like ? escape '!' or e.last_name like ? escape '!')");
+            args.add(pattern);
+            args.add(pattern);
+        }
+        if (email != null) {
+            sql.append(" and e.email_id = ?");
+            args.add(email);
+        }
+        // One row more than the page tells whether another page follows
+        sql.append(" order by e.id limit ?");
+        args.add(pageSize + 1);
+
+        PageWriter writer = new PageWriter(fields, pageSize);
+        jdbcTemplate.query(sql.toString(), writer::row, args.toArray());
+        return writer.finish();
+    }
+
+    private final class PageWriter {
+        private final Set<EmployeeField> fields;
+        private final int pageSize;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final JsonGenerator generator;
+        private int size;
+        private long hash = 1;
+        private Long lastId;
+        private boolean hasMore;
+
+        private PageWriter(Set<EmployeeField> fields, int pageSize) {
+            this.fields = fields;
+            this.pageSize = pageSize;
+            try {
+                this.generator = objectMapper.getFactory().createGenerator(out);
+                generator.writeStartArray();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void row(ResultSet rs) throws SQLException {
+            if (size == pageSize) {
+                hasMore = true;
+                return;
+            }
+            long id = rs.getLong(1);
+            long version = rs.getLong(2);
+            hash = 31 * (31 * hash + id) + version;
+            lastId = id;
+            size++;
+            try {
+                generator.writeStartObject();
+                int column = 3;
+                for (EmployeeField field : fields) {
+                    generator.writeFieldName(field.getJsonName());
+                    if (field.isText()) {
+                        String value = rs.getString(column++);
+                        if (value == null) generator.writeNull(); else generator.writeString(value);
+                        // The joined department name can change without the employee's version
+                        if (field.needsDepartment()) hash = 31 * hash + (value == null ? 0 : value.hashCode());
+                    } else {
+                        long value = rs.getLong(column++);
+                        if (rs.wasNull()) generator.writeNull(); else generator.writeNumber(value);
+                    }
+                }
+                generator.writeEndObject();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private EmployeeFieldsPageDto finish() {
+            try {
+                generator.writeEndArray();
+                generator.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return new EmployeeFieldsPageDto(out.toByteArray(), size, hash, hasMore ? lastId : null);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package uk.gitsoft.ems.service.impl;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.audit.AuditTrail;
+import uk.gitsoft.ems.cache.DepartmentHeadcounts;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.changes.EmployeeChangeLog;
+import uk.gitsoft.ems.dto.BulkImportResultDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.readmodel.EmployeeReadModel;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.search.EmployeeSearchIndex;
+import uk.gitsoft.ems.service.EmployeeImportService;
+import uk.gitsoft.ems.service.ImportFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk employee import.
+ *
+ * Input is read as a stream and processed in fixed-size chunks. For each chunk the
+ * department references are checked against the in-memory department snapshot and
+ * existing emails with one query, then the valid rows are written with a single
+ * JDBC batch (sent as a multi-row INSERT with rewriteBatchedStatements=true) in
+ * its own short transaction, together with their change-log rows. If the batch
+ * fails each row is retried in its own transaction. Bad rows are reported back
+ * instead of aborting the load.
+ */
+@Service
+public class EmployeeImportServiceImpl implements EmployeeImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeImportServiceImpl.class);
+
+    static final int MAX_CHUNK_SIZE = 10_000;
+    private static final String INSERT_SQL =
+            "insert into employees (first_name, last_name, email_id, department_id, version) values (?, ?, ?, ?, 0)";
+
+    private final EmployeeRepository employeeRepository;
+    private final DepartmentSnapshotCache departmentCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final EmployeeSearchIndex searchIndex;
+    private final DepartmentHeadcounts headcounts;
+    private final EmployeeChangeLog changeLog;
+    private final EmployeeReadModel readModel;
+    private final AuditTrail auditTrail;
+    private final int defaultChunkSize;
+
+    public EmployeeImportServiceImpl(EmployeeRepository employeeRepository,
+                                     DepartmentSnapshotCache departmentCache,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     ObjectMapper objectMapper,
+                                     Validator validator,
+                                     EmployeeSearchIndex searchIndex,
+                                     DepartmentHeadcounts headcounts,
+                                     EmployeeChangeLog changeLog,
+                                     EmployeeReadModel readModel,
+                                     AuditTrail auditTrail,
+                                     @Value("${ems.import.chunk-size:1000}") int defaultChunkSize) {
+        this.employeeRepository = employeeRepository;
+        this.departmentCache = departmentCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.searchIndex = searchIndex;
+        this.headcounts = headcounts;
+        this.changeLog = changeLog;
+        this.readModel = readModel;
+        this.auditTrail = auditTrail;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    private record ImportRow(int row, EmployeeDto employeeDto) {
+    }
+
+    @Override
+    public BulkImportResultDto importEmployees(InputStream in, ImportFormat format, Integer chunkSize) throws IOException {
+        int size = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (size < 1 || size > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+
+        ImportState state = new ImportState(size);
+        if (format == ImportFormat.CSV) {
+            readCsv(in, state);
+        } else {
+            readJson(in, state);
+        }
+        state.flush();
+
+        BulkImportResultDto result = state.result;
+        log.info("Bulk import finished: received={}, inserted={}, failed={}",
+                result.getReceived(), result.getInserted(), result.getFailed());
+        return result;
+    }
+
+    // Handles both a top-level JSON array and newline-delimited JSON objects
+    private void readJson(InputStream in, ImportState state) throws IOException {
+        try (MappingIterator<EmployeeDto> iterator = objectMapper.readerFor(EmployeeDto.class).readValues(in)) {
+            while (true) {
+                int row = state.result.getReceived() + 1;
+                EmployeeDto employeeDto;
+                try {
+                    if (!iterator.hasNextValue()) break;
+                    employeeDto = iterator.nextValue();
+                } catch (JsonMappingException ex) {
+                    // Field-level problem (e.g. wrong type): the iterator can skip to the next record
+                    state.result.setReceived(row);
+                    state.result.reject(row, null, "Invalid record: " + ex.getOriginalMessage());
+                    continue;
+                } catch (IOException ex) {
+                    throw new IllegalArgumentException("Malformed JSON at record " + row + ": " + ex.getMessage());
+                }
+                state.accept(employeeDto);
+            }
+        }
+    }
+
+    private void readCsv(InputStream in, ImportState state) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) return;
+        int firstName = indexOf(header, "firstName");
+        int lastName = indexOf(header, "lastName");
+        int email = indexOf(header, "email");
+        int departmentId = indexOf(header, "departmentId");
+
+        List<String> fields;
+        while ((fields = reader.next()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) continue; // blank line
+            EmployeeDto employeeDto = new EmployeeDto();
+            employeeDto.setFirstName(field(fields, firstName));
+            employeeDto.setLastName(field(fields, lastName));
+            employeeDto.setEmail(field(fields, email));
+            String department = field(fields, departmentId);
+            if (department != null && !department.isBlank()) {
+                try {
+                    employeeDto.setDepartmentId(Long.parseLong(department.trim()));
+                } catch (NumberFormatException ex) {
+                    int row = state.result.getReceived() + 1;
+                    state.result.setReceived(row);
+                    state.result.reject(row, employeeDto.getEmail(), "Invalid departmentId: " + department);
+                    continue;
+                }
+            }
+            state.accept(employeeDto);
+        }
+    }
+
+    private static int indexOf(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(column)) return i;
+        }
+        throw new IllegalArgumentException("CSV header is missing column: " + column);
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    /**
+     * Per-load state: the current chunk, every email accepted so far (for in-load
+     * duplicate detection) and the running result.
+     */
+    private class ImportState {
+        private final int chunkSize;
+        private final List<ImportRow> chunk;
+        private final Set<String> seenEmails = new HashSet<>();
+        private final BulkImportResultDto result = new BulkImportResultDto();
+
+        ImportState(int chunkSize) {
+            this.chunkSize = chunkSize;
+            this.chunk = new ArrayList<>(chunkSize);
+        }
+
+        void accept(EmployeeDto employeeDto) {
+            int row = result.getReceived() + 1;
+            result.setReceived(row);
+
+            Set<ConstraintViolation<EmployeeDto>> violations = validator.validate(employeeDto);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                result.reject(row, employeeDto.getEmail(), message);
+                return;
+            }
+            employeeDto.setEmail(employeeDto.getEmail().trim());
+            chunk.add(new ImportRow(row, employeeDto));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) return;
+            writeChunk(chunk, seenEmails, result);
+            chunk.clear();
+        }
+    }
+
+    private void writeChunk(List<ImportRow> chunk, Set<String> seenEmails, BulkImportResultDto result) {
+        List<String> emails = chunk.stream().map(r -> r.employeeDto().getEmail()).toList();
+        // MySQL's default collation compares emails case-insensitively, so do the same here
+        Set<String> existingEmails = employeeRepository.findExistingEmails(emails).stream()
+                .map(EmployeeImportServiceImpl::normalise)
+                .collect(Collectors.toSet());
+
+        // Once per distinct id: a miss in the snapshot costs a database lookup
+        Set<Long> knownDepartments = chunk.stream()
+                .map(r -> r.employeeDto().getDepartmentId())
+                .distinct()
+                .filter(departmentCache::exists)
+                .collect(Collectors.toSet());
+
+        List<ImportRow> valid = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            EmployeeDto employeeDto = row.employeeDto();
+            String key = normalise(employeeDto.getEmail());
+            if (!knownDepartments.contains(employeeDto.getDepartmentId())) {
+                result.reject(row.row(), employeeDto.getEmail(), "Department not found: " + employeeDto.getDepartmentId());
+            } else if (existingEmails.contains(key)) {
+                result.reject(row.row(), employeeDto.getEmail(), "Email already exists");
+            } else if (!seenEmails.add(key)) {
+                result.reject(row.row(), employeeDto.getEmail(), "Duplicate email in import");
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) return;
+
+        List<EmployeeDto> inserted = new ArrayList<>(valid.size());
+        try {
+            inserted.addAll(transactionTemplate.execute(status -> insert(valid)));
+        } catch (DataAccessException ex) {
+            // Something changed under us (e.g. a concurrent insert of the same email):
+            // fall back to one transaction per row so only the offending rows are rejected
+            log.warn("Batch insert failed, retrying chunk row by row: {}", ex.getMostSpecificCause().getMessage());
+            for (ImportRow row : valid) {
+                try {
+                    inserted.addAll(transactionTemplate.execute(status -> insert(List.of(row))));
+                } catch (DataAccessException rowEx) {
+                    result.reject(row.row(), row.employeeDto().getEmail(), rowEx.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        result.setInserted(result.getInserted() + inserted.size());
+        // In-memory views only; they apply the rows now that they are committed
+        for (EmployeeDto employeeDto : inserted) {
+            searchIndex.put(employeeDto);
+            readModel.put(employeeDto);
+            headcounts.adjust(null, employeeDto.getDepartmentId());
+        }
+    }
+
+    /**
+     * Inserts the rows (one JDBC batch) and, in the same transaction, their
+     * change-log rows and audit events. JDBC batches don't hand back generated
+     * ids, so the new rows are read back once by email.
+     */
+    private List<EmployeeDto> insert(List<ImportRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            EmployeeDto employeeDto = row.employeeDto();
+            ps.setString(1, employeeDto.getFirstName());
+            ps.setString(2, employeeDto.getLastName());
+            ps.setString(3, employeeDto.getEmail());
+            ps.setLong(4, employeeDto.getDepartmentId());
+        });
+        List<EmployeeDto> inserted = employeeRepository.findDtosByEmailIn(
+                rows.stream().map(row -> row.employeeDto().getEmail()).toList());
+        changeLog.recordUpserts(inserted.stream().map(EmployeeDto::getId).toList());
+        auditTrail.employeesCreated(inserted, AuditTrail.currentActor());
+        return inserted;
+    }
+
+    private static String normalise(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,185 @@
+package uk.gitsoft.ems.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.config.ReadRouting;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.metrics.SqlStatementCounter;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent lookups by id into one IN query.
+ *
+ * Off by default (a zero window); set ems.employee-lookup.batch-window to turn
+ * it on. A lookup made while no other is in flight runs at once on its own. One
+ * made while others are in flight opens a batch and waits out the window;
+ * lookups that arrive meanwhile join it, and one for an id already in the batch
+ * shares that id's result. Then the opener runs a single findDtosByIdIn for the
+ * whole batch and hands every caller its row. A batch that reaches maxBatch ids
+ * is run at once by the caller that filled it. Once a batch has started its
+ * query nobody joins it any more, so a lookup never gets a row read before the
+ * lookup was made. Lookups pinned to the primary (read-your-writes) always run
+ * on their own.
+ *
+ * The batched query is charged to the SQL statement count of every request it
+ * answered, not just to the one whose thread happened to run it.
+ *
+ * Queries run in a short read-only transaction of their own, opened only once
+ * the batch is due, so they are routed to the replica when one is configured
+ * and no connection is held while the window runs.
+ */
+@Component
+class EmployeeLookupBatcher {
+
+    private static final class Batch {
+        private final Map<Long, CompletableFuture<Optional<EmployeeDto>>> waiting = new LinkedHashMap<>();
+        private final List<SqlStatementCounter.Tally> tallies = new ArrayList<>();
+        private boolean closed;
+    }
+
+    private final EmployeeRepository employeeRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final DistributionSummary batchSizes;
+    private final Counter coalesced;
+
+    private final Object lock = new Object();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private Batch open;
+
+    EmployeeLookupBatcher(EmployeeRepository employeeRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${ems.employee-lookup.batch-window:0ms}") Duration window,
+                          @Value("${ems.employee-lookup.max-batch:100}") int maxBatch) {
+        this.employeeRepository = employeeRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.batchSizes = DistributionSummary.builder("ems.employee.lookup.batch.size")
+                .description("Ids fetched per batched employee lookup query")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("ems.employee.lookup.coalesced")
+                .description("Employee lookups that shared another lookup's result for the same id")
+                .register(meterRegistry);
+    }
+
+    Optional<EmployeeDto> find(Long id) {
+        if (ReadRouting.isPrimaryRequired()) {
+            // Outside a read-only transaction, so it stays on the primary
+            return employeeRepository.findDtoById(id);
+        }
+        if (windowNanos == 0) {
+            return readOnlyTransaction.execute(status -> employeeRepository.findDtoById(id));
+        }
+        boolean alone;
+        synchronized (lock) {
+            // Nobody else is looking anything up, so there is no one to wait for
+            alone = open == null && inFlight.get() == 0;
+            inFlight.incrementAndGet();
+        }
+        try {
+            return alone
+                    ? readOnlyTransaction.execute(status -> employeeRepository.findDtoById(id))
+                    : findBatched(id);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private Optional<EmployeeDto> findBatched(Long id) {
+        CompletableFuture<Optional<EmployeeDto>> result;
+        Batch batch;
+        boolean opener = false;
+        Batch full = null;
+        synchronized (lock) {
+            if (open == null) {
+                open = new Batch();
+                opener = true;
+            }
+            batch = open;
+            batch.tallies.add(SqlStatementCounter.current());
+            result = batch.waiting.get(id);
+            if (result == null) {
+                result = new CompletableFuture<>();
+                batch.waiting.put(id, result);
+            } else {
+                coalesced.increment();
+            }
+            if (batch.waiting.size() >= maxBatch) {
+                full = close(batch);
+            }
+        }
+        if (full != null) {
+            run(full);
+        } else if (opener) {
+            awaitWindow();
+            Batch due;
+            synchronized (lock) {
+                due = batch.closed ? null : close(batch);
+            }
+            if (due != null) run(due);
+        }
+        return await(result);
+    }
+
+    // Caller holds the lock
+    private Batch close(Batch batch) {
+        batch.closed = true;
+        if (open == batch) open = null;
+        return batch;
+    }
+
+    private void awaitWindow() {
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private void run(Batch batch) {
+        List<Long> ids = new ArrayList<>(batch.waiting.keySet());
+        batchSizes.record(ids.size());
+        try {
+            Map<Long, EmployeeDto> found = SqlStatementCounter.countFor(batch.tallies,
+                            () -> readOnlyTransaction.execute(status -> employeeRepository.findDtosByIdIn(ids)))
+                    .stream()
+                    .collect(Collectors.toMap(EmployeeDto::getId, Function.identity()));
+            batch.waiting.forEach((id, result) -> result.complete(Optional.ofNullable(found.get(id))));
+        } catch (RuntimeException ex) {
+            batch.waiting.values().forEach(result -> result.completeExceptionally(ex));
+        }
+    }
+
+    private static Optional<EmployeeDto> await(CompletableFuture<Optional<EmployeeDto>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            // Every caller sees the query's own exception, so the usual error mapping applies
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+}
@@ -1,55 +1,299 @@
 package uk.gitsoft.ems.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gitsoft.ems.audit.AuditTrail;
+import uk.gitsoft.ems.cache.DepartmentHeadcounts;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.config.ReadRouting;
+import uk.gitsoft.ems.changes.EmployeeChangeLog;
 import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.dto.EmployeeFieldsPageDto;
+import uk.gitsoft.ems.dto.EmployeePageDto;
+import uk.gitsoft.ems.dto.ReportingHeadcountDto;
 import uk.gitsoft.ems.entity.Department;
 import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.exception.PreconditionFailedException;
 import uk.gitsoft.ems.exception.ResourceNotFoundException;
+import uk.gitsoft.ems.hierarchy.ReportingLines;
 import uk.gitsoft.ems.mapper.EmployeeMapper;
+import uk.gitsoft.ems.readmodel.EmployeeReadModel;
 import uk.gitsoft.ems.repository.DepartmentRepository;
 import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.search.EmployeeSearchIndex;
+import uk.gitsoft.ems.service.EmployeeField;
 import uk.gitsoft.ems.service.EmployeeService;
+import uk.gitsoft.ems.service.ExportFormat;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 @Service
 @AllArgsConstructor
 public class EmployeeServiceImpl implements EmployeeService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int EXPORT_FLUSH_EVERY = 500;
+    static final int DEFAULT_SEARCH_LIMIT = 10;
+    static final int MAX_SEARCH_LIMIT = 50;
+    static final int MAX_MULTI_GET_IDS = 500;
+    private static final String CSV_HEADER = "id,firstName,lastName,email,departmentId,departmentName\n";
+
     private final EmployeeRepository employeeRepository;
     private final DepartmentRepository DepartmentRepository;
+    private final DepartmentSnapshotCache departmentCache;
+    private final DepartmentHeadcounts headcounts;
+    private final EmployeeSearchIndex searchIndex;
+    private final EmployeeChangeLog changeLog;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final EmployeeLookupBatcher lookupBatcher;
+    private final ReportingLines reportingLines;
+    private final EmployeeFieldsQuery fieldsQuery;
+    private final EmployeeReadModel readModel;
+    private final AuditTrail auditTrail;
 
     @Override
+    @Transactional
     public EmployeeDto createEmployee(EmployeeDto employeeDto) {
 
         Employee employee = EmployeeMapper.mapToEmployee(employeeDto);
-        Department department = DepartmentRepository.findById(employeeDto.getDepartmentId())
-                .orElseThrow(() -> new ResourceNotFoundException("Department not found: " + employeeDto.getDepartmentId()));
-        employee.setDepartment(department);
+        employee.setDepartment(departmentReference(employeeDto.getDepartmentId()));
+        employee.setManager(managerReference(null, employeeDto.getManagerId()));
         Employee savedEmployee = employeeRepository.save(employee);
-        return EmployeeMapper.mapToEmployeeDto(savedEmployee);
+        if (employeeDto.getManagerId() != null) {
+            reportingLines.attach(savedEmployee.getId(), employeeDto.getManagerId());
+        }
+        changeLog.recordUpsert(savedEmployee.getId());
+        EmployeeDto savedDto = toDto(savedEmployee);
+        searchIndex.put(savedDto);
+        readModel.put(savedDto);
+        auditTrail.employeeCreated(savedDto);
+        headcounts.adjust(null, savedDto.getDepartmentId());
+        return savedDto;
     }
 
     @Override
+    // Not transactional: the batcher must not hold a connection while it waits for its batch to fill
     public EmployeeDto getEmployeeById(Long employeeId) {
-        Employee employee = employeeRepository.findById(employeeId)
+        Optional<EmployeeDto> employee = servesFromReadModel()
+                ? readModel.find(employeeId)
+                : lookupBatcher.find(employeeId);
+        return employee
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Employee not found: " + employeeId));
+    }
 
-        return EmployeeMapper.mapToEmployeeDto(employee);
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeDto> getEmployeesByIds(List<Long> employeeIds) {
+        if (employeeIds.size() > MAX_MULTI_GET_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_MULTI_GET_IDS + " ids can be requested at once");
+        }
+        if (employeeIds.stream().anyMatch(id -> id == null || id < 1)) {
+            throw new IllegalArgumentException("Ids must be positive numbers");
+        }
+        Set<Long> distinct = new LinkedHashSet<>(employeeIds);
+        if (distinct.isEmpty()) return List.of();
+        Map<Long, EmployeeDto> found = new HashMap<>();
+        employeeRepository.findDtosByIdIn(distinct).forEach(employee -> found.put(employee.getId(), employee));
+        // Request order; unknown ids are left out
+        return distinct.stream().map(found::get).filter(Objects::nonNull).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<EmployeeDto> getAllEmployees() {
-        List<Employee> employees = employeeRepository.findAll();
-        return employees.stream()
-                .map(EmployeeMapper::mapToEmployeeDto)
-                .toList();
+        return servesFromReadModel() ? readModel.findAll() : employeeRepository.findAllDtos();
+    }
+
+    // Requests pinned to the primary (read-your-writes) skip it, as they skip the lookup batcher
+    private boolean servesFromReadModel() {
+        return readModel.isReady() && !ReadRouting.isPrimaryRequired();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeePageDto getEmployeesPage(Long after, Integer limit, Long departmentId, String namePrefix, String email) {
+        int pageSize = pageSize(after, limit);
+        List<EmployeeDto> rows = employeeRepository.findPage(
+                after == null ? 0L : after,
+                departmentId,
+                escapeLike(blankToNull(namePrefix)),
+                blankToNull(email),
+                Limit.of(pageSize + 1));
+
+        return toPage(rows, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeeFieldsPageDto getEmployeeFieldsPage(Set<EmployeeField> fields, Long after, Integer limit,
+                                                       Long departmentId, String namePrefix, String email) {
+        int pageSize = pageSize(after, limit);
+        return fieldsQuery.page(fields, after == null ? 0L : after, pageSize,
+                departmentId, blankToNull(namePrefix), blankToNull(email));
+    }
+
+    private static int pageSize(Long after, Integer limit) {
+        if (after != null && after < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeDto> getDirectReports(Long managerId) {
+        List<EmployeeDto> reports = employeeRepository.findDirectReports(managerId);
+        if (reports.isEmpty()) requireEmployee(managerId);
+        return reports;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeePageDto getReportingSubtree(Long managerId, Long after, Integer limit) {
+        int pageSize = pageSize(after, limit);
+        List<EmployeeDto> rows = employeeRepository.findSubtreePage(
+                managerId, after == null ? 0L : after, Limit.of(pageSize + 1));
+        if (rows.isEmpty()) requireEmployee(managerId);
+        return toPage(rows, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeDto> getManagementChain(Long employeeId) {
+        List<EmployeeDto> chain = employeeRepository.findManagementChain(employeeId);
+        if (chain.isEmpty()) requireEmployee(employeeId);
+        return chain;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ReportingHeadcountDto getReportingHeadcount(Long managerId) {
+        return employeeRepository.findHeadcount(managerId).orElseGet(() -> {
+            requireEmployee(managerId);
+            return new ReportingHeadcountDto(managerId, 0L, 0L);
+        });
+    }
+
+    // An empty hierarchy answer needs a second look: nobody below, or no such employee
+    private void requireEmployee(Long employeeId) {
+        if (!employeeRepository.existsById(employeeId)) {
+            throw new ResourceNotFoundException("Employee not found: " + employeeId);
+        }
+    }
+
+    // Pages are fetched one row long, so whether another page exists is known without a count query
+    private static EmployeePageDto toPage(List<EmployeeDto> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<EmployeeDto> content = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? content.get(content.size() - 1).getId() : null;
+        return new EmployeePageDto(content, nextCursor);
+    }
+
+    /**
+     * Writes every employee to the given stream without materialising the table.
+     *
+     * Rows come from a server-side cursor; each entity is detached as soon as it is
+     * mapped so the persistence context stays empty, and output is flushed in batches
+     * so the client starts receiving data immediately.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportEmployees(ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        try (Stream<Employee> employees = employeeRepository.streamAllForExport()) {
+            Iterator<Employee> iterator = employees.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                Employee employee = iterator.next();
+                EmployeeDto employeeDto = EmployeeMapper.mapToEmployeeDto(employee);
+                entityManager.detach(employee);
+
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, employeeDto);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(employeeDto));
+                    writer.write('\n');
+                }
+                if (++written % EXPORT_FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, EmployeeDto employeeDto) throws IOException {
+        writer.write(String.valueOf(employeeDto.getId()));
+        writer.write(',');
+        writer.write(csvField(employeeDto.getFirstName()));
+        writer.write(',');
+        writer.write(csvField(employeeDto.getLastName()));
+        writer.write(',');
+        writer.write(csvField(employeeDto.getEmail()));
+        writer.write(',');
+        writer.write(employeeDto.getDepartmentId() == null ? "" : employeeDto.getDepartmentId().toString());
+        writer.write(',');
+        writer.write(csvField(employeeDto.getDepartmentName()));
+        writer.write('\n');
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks and double embedded quotes
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
     }
 
+    // Name prefixes are matched with LIKE, so wildcard characters typed by the client must be literal
+    private static String escapeLike(String value) {
+        if (value == null) return null;
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * One select and at most one update: the entity stays managed for the whole
+     * transaction, so dirty checking writes only the changed columns and the version
+     * check rides on the update's WHERE clause; the department is an unloaded reference.
+     * A write that changed something also appends its row to the change log, and a
+     * new manager also rewrites the employee's reporting lines.
+     */
     @Override
+    @Transactional
     public EmployeeDto updateEmployee(long employeeId, EmployeeDto employeeDto) {
         // Optional: validate id match if body.id present
         if (employeeDto.getId() != null && !employeeDto.getId().equals(employeeId)) {
@@ -58,31 +302,74 @@ public class EmployeeServiceImpl implements EmployeeService {
         if (employeeId <= 0) {
             throw new IllegalArgumentException("Employee path ID must be provided and greater than zero");
         }
-        employeeRepository.findById(employeeId)
+        Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Employee not found: " + employeeId));
-        Employee employee = EmployeeMapper.mapToEmployee(employeeDto);
-
-        employee.setId(employeeId);
+        checkVersion(employee, employeeDto.getVersion());
+        EmployeeDto before = snapshotOf(employee);
+        Long previousDepartmentId = before.getDepartmentId();
+        Long previousVersion = employee.getVersion();
+        // PUT replaces the manager too: a body without managerId moves the employee to the top
+        boolean managerChanged = !Objects.equals(managerIdOf(employee), employeeDto.getManagerId());
 
-        Department department = DepartmentRepository.findById(employeeDto.getDepartmentId())
-                .orElseThrow(() -> new ResourceNotFoundException("Department not found: " + employeeDto.getDepartmentId()));
-        employee.setDepartment(department);
+        employee.setFirstname(employeeDto.getFirstName());
+        employee.setLastname(employeeDto.getLastName());
+        employee.setEmail(employeeDto.getEmail());
+        employee.setDepartment(departmentReference(employeeDto.getDepartmentId()));
+        if (managerChanged) {
+            employee.setManager(managerReference(employeeId, employeeDto.getManagerId()));
+        }
 
-        Employee updatedEmployee = employeeRepository.save(employee);
-        return EmployeeMapper.mapToEmployeeDto(updatedEmployee);
+        // Flush now so constraint and lock failures surface before the in-memory hooks, and the DTO gets the new version
+        Employee updatedEmployee = employeeRepository.saveAndFlush(employee);
+        if (managerChanged) {
+            reportingLines.move(employeeId, employeeDto.getManagerId());
+        }
+        // An update that changed nothing did not bump the version and is not a change
+        if (!previousVersion.equals(updatedEmployee.getVersion())) {
+            changeLog.recordUpsert(employeeId);
+        }
+        EmployeeDto updatedDto = toDto(updatedEmployee);
+        searchIndex.put(updatedDto);
+        readModel.put(updatedDto);
+        auditTrail.employeeUpdated(before, updatedDto);
+        headcounts.adjust(previousDepartmentId, updatedDto.getDepartmentId());
+        return updatedDto;
     }
 
 
     @Override
+    @Transactional
     public void deleteEmployeeById(Long employeeId) {
-        if(employeeRepository.existsById(employeeId))
-            employeeRepository.deleteById(employeeId);
-        else
+        // The headcount and the audit trail need the row; the search index holds it for every indexed employee
+        EmployeeDto before = searchIndex.find(employeeId)
+                .or(() -> employeeRepository.findDtoById(employeeId))
+                .orElse(null);
+        Long departmentId = before == null ? null : before.getDepartmentId();
+        // A manager's reports move up to the manager's own manager first
+        List<Long> reattached = reportingLines.remove(employeeId);
+        if (employeeRepository.deleteByIdReturningCount(employeeId) == 0) {
             throw new ResourceNotFoundException("Employee not found: " + employeeId);
+        }
+        changeLog.recordDelete(employeeId);
+        searchIndex.remove(employeeId);
+        readModel.remove(employeeId);
+        headcounts.adjust(departmentId, null);
+        auditTrail.employeeDeleted(employeeId, before);
+        if (!reattached.isEmpty()) {
+            changeLog.recordUpserts(reattached);
+            for (EmployeeDto report : employeeRepository.findDtosByIdIn(reattached)) {
+                searchIndex.put(report);
+                readModel.put(report);
+                EmployeeDto reportBefore = new EmployeeDto(report.getId(), report.getFirstName(), report.getLastName(),
+                        report.getEmail(), report.getDepartmentId(), report.getDepartmentName(), null, employeeId);
+                auditTrail.employeeUpdated(reportBefore, report);
+            }
+        }
     }
 
     @Override
+    @Transactional
     public EmployeeDto patchEmployee(Long employeeId, EmployeeDto employeeDto) {
         if (employeeId == null || employeeId <= 0) {
             throw new IllegalArgumentException("Employee ID must be provided and greater than zero");
@@ -90,6 +377,10 @@ public class EmployeeServiceImpl implements EmployeeService {
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Employee not found: " + employeeId));
+        checkVersion(employee, employeeDto.getVersion());
+        EmployeeDto before = snapshotOf(employee);
+        Long previousDepartmentId = before.getDepartmentId();
+        Long previousVersion = employee.getVersion();
 
         if (employeeDto.getFirstName() != null) {
             employee.setFirstname(employeeDto.getFirstName());
@@ -101,12 +392,119 @@ public class EmployeeServiceImpl implements EmployeeService {
             employee.setEmail(employeeDto.getEmail());
         }
         if (employeeDto.getDepartmentId() != null) {
-            Department department = DepartmentRepository.findById(employeeDto.getDepartmentId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Department not found: " + employeeDto.getDepartmentId()));
-            employee.setDepartment(department);
+            employee.setDepartment(departmentReference(employeeDto.getDepartmentId()));
+        }
+        boolean managerChanged = employeeDto.getManagerId() != null
+                && !employeeDto.getManagerId().equals(managerIdOf(employee));
+        if (managerChanged) {
+            employee.setManager(managerReference(employeeId, employeeDto.getManagerId()));
+        }
+        // Flush now so constraint and lock failures surface before the in-memory hooks, and the DTO gets the new version
+        Employee updatedEmployee = employeeRepository.saveAndFlush(employee);
+        if (managerChanged) {
+            reportingLines.move(employeeId, employeeDto.getManagerId());
+        }
+        // An update that changed nothing did not bump the version and is not a change
+        if (!previousVersion.equals(updatedEmployee.getVersion())) {
+            changeLog.recordUpsert(employeeId);
+        }
+        EmployeeDto updatedDto = toDto(updatedEmployee);
+        searchIndex.put(updatedDto);
+        readModel.put(updatedDto);
+        auditTrail.employeeUpdated(before, updatedDto);
+        headcounts.adjust(previousDepartmentId, updatedDto.getDepartmentId());
+        return updatedDto;
+    }
+
+    /**
+     * Type-ahead search served from the in-memory index. While the index is still
+     * loading after startup, falls back to a name-prefix query on the database.
+     */
+    @Override
+    public List<EmployeeDto> searchEmployees(String query, Integer limit) {
+        int size = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (size < 1 || size > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        String trimmed = blankToNull(query);
+        if (trimmed == null) {
+            return List.of();
+        }
+        if (!searchIndex.isReady()) {
+            return employeeRepository.findPage(0L, null, escapeLike(trimmed), null, Limit.of(size));
+        }
+        // Indexed rows keep the department name they were written with; show the current one
+        return searchIndex.search(trimmed, size).stream()
+                .map(this::withCurrentDepartmentName)
+                .toList();
+    }
+
+    private EmployeeDto withCurrentDepartmentName(EmployeeDto indexed) {
+        EmployeeDto employeeDto = new EmployeeDto(indexed.getId(), indexed.getFirstName(), indexed.getLastName(),
+                indexed.getEmail(), indexed.getDepartmentId(), indexed.getDepartmentName(), indexed.getVersion(),
+                indexed.getManagerId());
+        departmentCache.find(indexed.getDepartmentId())
+                .ifPresent(department -> employeeDto.setDepartmentName(department.getDepartmentName()));
+        return employeeDto;
+    }
+
+    // Conditional write: a client-supplied version (body or If-Match) must be the current one
+    private static void checkVersion(Employee employee, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(employee.getVersion())) {
+            throw new PreconditionFailedException("Employee " + employee.getId() + " is at version "
+                    + employee.getVersion() + ", not " + expectedVersion);
+        }
+    }
+
+    /**
+     * Validates the department against the in-memory snapshot and returns an
+     * unloaded reference, so assigning a department costs no extra query.
+     */
+    private Department departmentReference(Long departmentId) {
+        if (!departmentCache.exists(departmentId)) {
+            throw new ResourceNotFoundException("Department not found: " + departmentId);
+        }
+        return DepartmentRepository.getReferenceById(departmentId);
+    }
+
+    /**
+     * Locks the manager's row (404 if there is none) and returns an unloaded
+     * reference to it. Whether the move would create a cycle is checked by
+     * ReportingLines.move once the employee's own row is locked.
+     */
+    private Employee managerReference(Long employeeId, Long managerId) {
+        if (managerId == null) return null;
+        if (managerId.equals(employeeId)) {
+            throw new IllegalArgumentException("An employee cannot be their own manager");
+        }
+        reportingLines.lockManager(managerId);
+        return employeeRepository.getReferenceById(managerId);
+    }
+
+    private static Long managerIdOf(Employee employee) {
+        return employee.getManager() == null ? null : employee.getManager().getId();
+    }
+
+    // Reading the id of a lazy department reference does not load it
+    private static Long departmentIdOf(Employee employee) {
+        return employee.getDepartment() == null ? null : employee.getDepartment().getId();
+    }
+
+    // The audited fields as they are before a write, without touching the lazy department or manager
+    private static EmployeeDto snapshotOf(Employee employee) {
+        return new EmployeeDto(employee.getId(), employee.getFirstname(), employee.getLastname(), employee.getEmail(),
+                departmentIdOf(employee), null, employee.getVersion(), managerIdOf(employee));
+    }
+
+    // Department name comes from the snapshot; touching it on a reference would trigger a select
+    private EmployeeDto toDto(Employee employee) {
+        Department department = employee.getDepartment();
+        if (department == null) {
+            return EmployeeMapper.mapToEmployeeDto(employee);
         }
-        Employee updatedEmployee = employeeRepository.save(employee);
-        return EmployeeMapper.mapToEmployeeDto(updatedEmployee);
+        return departmentCache.find(department.getId())
+                .map(departmentDto -> EmployeeMapper.mapToEmployeeDto(employee, departmentDto))
+                .orElseGet(() -> EmployeeMapper.mapToEmployeeDto(employee));
     }
 
 }
@@ -0,0 +1,27 @@
+-- Schema as previously created by Hibernate (ddl-auto=update) from the entity mappings.
+-- Databases that already have these tables are baselined at this version and skip it.
+
+create table departments (
+    id                     bigint       not null auto_increment,
+    department_name        varchar(255) not null,
+    department_description varchar(255),
+    primary key (id),
+    constraint uk_departments_department_name unique (department_name)
+);
+
+create table employees (
+    id            bigint       not null auto_increment,
+    first_name    varchar(255),
+    last_name     varchar(255),
+    email_id      varchar(255) not null,
+    department_id bigint,
+    primary key (id),
+    constraint uk_employees_email_id unique (email_id)
+);
+
+-- Created before the foreign key so MySQL uses it rather than adding an unnamed one
+-- (databases built by Hibernate already have that implicit index on department_id)
+create index idx_employees_department_id on employees (department_id);
+
+alter table employees
+    add constraint fk_employees_department foreign key (department_id) references departments (id);
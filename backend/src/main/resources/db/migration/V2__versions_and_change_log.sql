@@ -0,0 +1,14 @@
+-- Optimistic-lock versions, also the basis of the ETags; existing rows start at 0
+alter table departments add column version bigint default 0 not null;
+alter table employees add column version bigint default 0 not null;
+
+-- Append-only log behind the employee change feed (/api/employees/changes)
+create table employee_changes (
+    id          bigint      not null auto_increment,
+    employee_id bigint      not null,
+    change_type varchar(10) not null,
+    changed_at  datetime(6) not null,
+    primary key (id)
+);
+
+create index idx_employee_changes_changed_at on employee_changes (changed_at);
@@ -0,0 +1,6 @@
+-- Name lookups and sorting by surname, first name
+create index idx_employees_last_name_first_name on employees (last_name, first_name);
+
+-- The name-prefix filter matches first OR last name; with both leading columns indexed
+-- MySQL can answer it with an index merge instead of a table scan
+create index idx_employees_first_name on employees (first_name);
@@ -0,0 +1,25 @@
+-- Reporting lines: each employee's direct manager, plus a closure table holding every
+-- (manager above, employee below) pair with the number of levels between them (1 = direct report).
+-- An employee's own row is not stored, so employees without a manager need no closure rows.
+-- A deleted employee's closure rows go with it (ON DELETE CASCADE). The application reattaches a
+-- manager's reports before deleting the manager; SET NULL only keeps deletes made outside it from failing.
+
+alter table employees add column manager_id bigint;
+
+create index idx_employees_manager_id on employees (manager_id);
+
+alter table employees
+    add constraint fk_employees_manager foreign key (manager_id) references employees (id) on delete set null;
+
+create table employee_hierarchy (
+    ancestor_id   bigint not null,
+    descendant_id bigint not null,
+    depth         int    not null,
+    -- Subtree lookups and headcounts: range scan on ancestor_id
+    primary key (ancestor_id, descendant_id),
+    constraint fk_employee_hierarchy_ancestor foreign key (ancestor_id) references employees (id) on delete cascade,
+    constraint fk_employee_hierarchy_descendant foreign key (descendant_id) references employees (id) on delete cascade
+);
+
+-- Chain to the top: range scan on descendant_id, already in depth order
+create index idx_employee_hierarchy_descendant on employee_hierarchy (descendant_id, depth);
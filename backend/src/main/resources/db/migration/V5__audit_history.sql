@@ -0,0 +1,19 @@
+-- Change history for employees and departments: one row per committed write, with who made it
+-- and the before/after value of every field it changed, as a JSON object
+-- ({"lastName": {"before": "Smith", "after": "Jones"}}). Rows are written in batches by the
+-- application's audit writer and never updated; entity_id has no foreign key so history
+-- outlives the row it describes.
+
+create table audit_events (
+    id          bigint       not null auto_increment,
+    entity_type varchar(20)  not null,
+    entity_id   bigint       not null,
+    action      varchar(10)  not null,
+    actor       varchar(100) not null,
+    changes     text         not null,
+    occurred_at datetime(6)  not null,
+    primary key (id)
+);
+
+-- History of one entity in order: range scan on (entity_type, entity_id), then id
+create index idx_audit_events_entity on audit_events (entity_type, entity_id, id);
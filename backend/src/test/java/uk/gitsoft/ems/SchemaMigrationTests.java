@@ -0,0 +1,41 @@
+package uk.gitsoft.ems;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A database created by the old ddl-auto=update is baselined at version 1 and
+ * must still receive everything added since.
+ */
+class SchemaMigrationTests {
+
+    @Test
+    void databaseThatPredatesTheMigrationsGetsTheNewerSchema() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ems_legacy;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // The Hibernate-generated schema, with data, and no Flyway history
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(dataSource);
+        jdbc.update("insert into departments (department_name) values ('Engineering')");
+        jdbc.update("insert into employees (first_name, last_name, email_id) values ('Ada', 'Lovelace', 'ada@ems.test')");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        assertThat(jdbc.queryForObject("select version from employees", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("select version from departments", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("select count(*) from employee_changes", Integer.class)).isZero();
+        assertThat(jdbc.queryForObject("select count(*) from employee_hierarchy", Integer.class)).isZero();
+        assertThat(jdbc.queryForObject("select count(*) from audit_events", Integer.class)).isZero();
+    }
+}
@@ -0,0 +1,63 @@
+package uk.gitsoft.ems.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTests {
+
+    // One request per client and hardly any refill, so a client keeps its 429 until its bucket is dropped
+    private final AdmissionControlFilter filter = filter(2);
+
+    @Test
+    void newClientsPushOutTheLeastRecentlySeen() throws Exception {
+        assertThat(status("10.0.0.1")).isEqualTo(200);
+        assertThat(status("10.0.0.2")).isEqualTo(200);
+        // Seen again, so 10.0.0.2 is now the least recent
+        assertThat(status("10.0.0.1")).isEqualTo(429);
+
+        assertThat(status("10.0.0.3")).isEqualTo(200);
+
+        // 10.0.0.1 kept its empty bucket; 10.0.0.2 lost its and starts again
+        assertThat(status("10.0.0.1")).isEqualTo(429);
+        assertThat(status("10.0.0.2")).isEqualTo(200);
+    }
+
+    @Test
+    void clientsWithEmptyBucketsDoNotPinTheMap() throws Exception {
+        for (int i = 1; i <= 100; i++) {
+            assertThat(status("10.0.1." + i)).isEqualTo(200);
+        }
+        // Only the last two are still tracked
+        assertThat(status("10.0.1.100")).isEqualTo(429);
+        assertThat(status("10.0.1.99")).isEqualTo(429);
+        assertThat(status("10.0.1.1")).isEqualTo(200);
+    }
+
+    private int status(String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees/1");
+        request.setRemoteAddr(client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static AdmissionControlFilter filter(int maxClients) {
+        Map<AdmissionControlFilter.RouteClass, AdmissionControlFilter.Quota> quotas =
+                new EnumMap<>(AdmissionControlFilter.RouteClass.class);
+        for (AdmissionControlFilter.RouteClass routeClass : AdmissionControlFilter.RouteClass.values()) {
+            quotas.put(routeClass, new AdmissionControlFilter.Quota(0.0001, 1));
+        }
+        return new AdmissionControlFilter(quotas, 10, 0, Duration.ZERO, maxClients,
+                new ObjectMapper(), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gitsoft.ems.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the real Tomcat connector: the request executor is Tomcat's, not MockMvc's.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+@ActiveProfiles("test")
+class VirtualThreadModeTests {
+
+    private static final AtomicReference<Thread> requestThread = new AtomicReference<>();
+
+    @TestConfiguration
+    static class RequestThreadRecorder {
+
+        @Bean
+        FilterRegistrationBean<OncePerRequestFilter> requestThreadFilter() {
+            return new FilterRegistrationBean<>(new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                        throws ServletException, IOException {
+                    requestThread.set(Thread.currentThread());
+                    chain.doFilter(request, response);
+                }
+            });
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void requestsAreHandledOnVirtualThreads() throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/departments")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(requestThread.get()).isNotNull();
+        assertThat(requestThread.get().isVirtual()).isTrue();
+    }
+
+    @Test
+    void safeguardsAreInPlace() {
+        assertThat(context.getBeansOfType(VirtualThreadPinningMonitor.class)).hasSize(1);
+        // Registered by the connection limiter wrapped around the pool
+        assertThat(meterRegistry.find("ems.db.limiter.available").gauge()).isNotNull();
+        assertThat(meterRegistry.find("ems.virtual-threads.pinned").counter()).isNotNull();
+    }
+}
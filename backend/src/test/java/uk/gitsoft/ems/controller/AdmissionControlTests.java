@@ -0,0 +1,76 @@
+package uk.gitsoft.ems.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "ems.admission.max-concurrent=1",
+        "ems.admission.max-waiting=0",
+        "ems.admission.expensive.rate=0.01",
+        "ems.admission.expensive.burst=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AdmissionControlTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void expensiveRoutesRunOutOfQuotaWithoutAffectingCheapOnes() throws Exception {
+        mockMvc.perform(from("10.0.0.1", get("/api/employees"))).andExpect(status().isOk());
+        mockMvc.perform(from("10.0.0.1", get("/api/employees"))).andExpect(status().isOk());
+
+        mockMvc.perform(from("10.0.0.1", get("/api/employees")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.path").value("/api/employees"));
+        // Lookups by id have their own quota, and other clients their own buckets
+        mockMvc.perform(from("10.0.0.1", get("/api/employees/1"))).andExpect(status().isNotFound());
+        mockMvc.perform(from("10.0.0.2", get("/api/employees"))).andExpect(status().isOk());
+
+        assertThat(meterRegistry.get("ems.admission.requests")
+                .tags("route", "expensive", "outcome", "rejected", "reason", "rate")
+                .counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void requestsBeyondTheConcurrencyLimitAreShed() throws Exception {
+        // The export holds the only slot until its streamed body has been written
+        MvcResult export = mockMvc.perform(from("10.0.0.3", get("/api/employees/export")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(from("10.0.0.4", get("/api/employees/1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+
+        mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk());
+        mockMvc.perform(from("10.0.0.4", get("/api/employees/1"))).andExpect(status().isNotFound());
+    }
+
+    private static MockHttpServletRequestBuilder from(String address, MockHttpServletRequestBuilder builder) {
+        return builder.with(request -> {
+            request.setRemoteAddr(address);
+            return request;
+        });
+    }
+}
@@ -0,0 +1,211 @@
+package uk.gitsoft.ems.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.audit.AuditTrail;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuditHistoryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private Long departmentId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        departmentId = departmentRepository.save(department).getId();
+    }
+
+    @Test
+    void employeeHistoryRecordsWhoChangedWhat() throws Exception {
+        long id = create();
+        mockMvc.perform(patch("/api/employees/" + id)
+                        .header(AuditTrail.ACTOR_HEADER, "alice")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"King\"}"))
+                .andExpect(status().isOk());
+        // Same values again: no new version, no history entry
+        mockMvc.perform(patch("/api/employees/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"King\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/employees/" + id).header(AuditTrail.ACTOR_HEADER, "bob"))
+                .andExpect(status().isNoContent());
+
+        JsonNode history = awaitHistory("/api/employees/" + id + "/history", 3);
+        assertThat(history).hasSize(3);
+
+        JsonNode created = history.get(0);
+        assertThat(created.get("action").asText()).isEqualTo("CREATE");
+        assertThat(created.at("/changes/email/before").isNull()).isTrue();
+        assertThat(created.at("/changes/email/after").asText()).isEqualTo("ada@ems.test");
+        assertThat(created.at("/changes/departmentId/after").asLong()).isEqualTo(departmentId);
+
+        JsonNode updated = history.get(1);
+        assertThat(updated.get("action").asText()).isEqualTo("UPDATE");
+        assertThat(updated.get("actor").asText()).isEqualTo("alice");
+        assertThat(updated.get("changes").size()).isEqualTo(1);
+        assertThat(updated.at("/changes/lastName/before").asText()).isEqualTo("Lovelace");
+        assertThat(updated.at("/changes/lastName/after").asText()).isEqualTo("King");
+
+        JsonNode deleted = history.get(2);
+        assertThat(deleted.get("action").asText()).isEqualTo("DELETE");
+        assertThat(deleted.get("actor").asText()).isEqualTo("bob");
+        assertThat(deleted.at("/changes/lastName/before").asText()).isEqualTo("King");
+        assertThat(deleted.at("/changes/lastName/after").isNull()).isTrue();
+    }
+
+    @Test
+    void historyIsPaginated() throws Exception {
+        long id = create();
+        for (String lastName : new String[]{"A", "B", "C"}) {
+            mockMvc.perform(patch("/api/employees/" + id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"lastName\":\"" + lastName + "\"}"))
+                    .andExpect(status().isOk());
+        }
+        awaitHistory("/api/employees/" + id + "/history", 4);
+
+        String cursor = mockMvc.perform(get("/api/employees/" + id + "/history").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(EmployeeController.NEXT_CURSOR_HEADER))
+                .andReturn().getResponse().getHeader(EmployeeController.NEXT_CURSOR_HEADER);
+        String rest = mockMvc.perform(get("/api/employees/" + id + "/history").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(EmployeeController.NEXT_CURSOR_HEADER))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode last = objectMapper.readTree(rest);
+        assertThat(last).hasSize(1);
+        assertThat(last.get(0).at("/changes/lastName/after").asText()).isEqualTo("C");
+    }
+
+    @Test
+    void departmentChangesAreRecorded() throws Exception {
+        mockMvc.perform(put("/api/departments/" + departmentId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"departmentName\":\"Research\"}"))
+                .andExpect(status().isOk());
+
+        JsonNode history = awaitHistory("/api/departments/" + departmentId + "/history", 1);
+        assertThat(history.get(0).get("action").asText()).isEqualTo("UPDATE");
+        assertThat(history.get(0).at("/changes/departmentName/before").asText()).isEqualTo("Engineering");
+        assertThat(history.get(0).at("/changes/departmentName/after").asText()).isEqualTo("Research");
+    }
+
+    @Test
+    void importedEmployeesAreRecordedAsCreated() throws Exception {
+        mockMvc.perform(post("/api/employees/batch")
+                        .header(AuditTrail.ACTOR_HEADER, "importer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"firstName\":\"Grace\",\"lastName\":\"Hopper\",\"email\":\"grace@ems.test\",\"departmentId\":"
+                                + departmentId + "}]"))
+                .andExpect(status().isOk());
+        long id = employeeRepository.findAll().get(0).getId();
+
+        JsonNode history = awaitHistory("/api/employees/" + id + "/history", 1);
+        assertThat(history).hasSize(1);
+        assertThat(history.get(0).get("action").asText()).isEqualTo("CREATE");
+        assertThat(history.get(0).get("actor").asText()).isEqualTo("importer");
+        assertThat(history.get(0).at("/changes/lastName/after").asText()).isEqualTo("Hopper");
+    }
+
+    @Test
+    void bulkJobsRecordEachRowUnderTheSubmitter() throws Exception {
+        long id = create();
+        Department target = new Department();
+        target.setDepartmentName("Research");
+        long targetId = departmentRepository.save(target).getId();
+        departmentCache.invalidate();
+
+        mockMvc.perform(post("/api/employees/jobs")
+                        .header(AuditTrail.ACTOR_HEADER, "carol")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"MOVE_DEPARTMENT\",\"departmentId\":" + departmentId
+                                + ",\"targetDepartmentId\":" + targetId + "}"))
+                .andExpect(status().isAccepted());
+        awaitHistory("/api/employees/" + id + "/history", 2);
+        mockMvc.perform(post("/api/employees/jobs")
+                        .header(AuditTrail.ACTOR_HEADER, "dave")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"DELETE\",\"namePrefix\":\"Ada\"}"))
+                .andExpect(status().isAccepted());
+
+        JsonNode history = awaitHistory("/api/employees/" + id + "/history", 3);
+        assertThat(history).hasSize(3);
+        JsonNode moved = history.get(1);
+        assertThat(moved.get("action").asText()).isEqualTo("UPDATE");
+        assertThat(moved.get("actor").asText()).isEqualTo("carol");
+        assertThat(moved.get("changes").size()).isEqualTo(1);
+        assertThat(moved.at("/changes/departmentId/before").asLong()).isEqualTo(departmentId);
+        assertThat(moved.at("/changes/departmentId/after").asLong()).isEqualTo(targetId);
+        JsonNode deleted = history.get(2);
+        assertThat(deleted.get("action").asText()).isEqualTo("DELETE");
+        assertThat(deleted.get("actor").asText()).isEqualTo("dave");
+        assertThat(deleted.at("/changes/departmentId/before").asLong()).isEqualTo(targetId);
+    }
+
+    @Test
+    void unknownIdsAreNotFound() throws Exception {
+        mockMvc.perform(get("/api/employees/999999/history")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/departments/999999/history")).andExpect(status().isNotFound());
+    }
+
+    private long create() throws Exception {
+        String body = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@ems.test\",\"departmentId\":"
+                                + departmentId + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    // Entries are written by the background writer, so give it a moment
+    private JsonNode awaitHistory(String path, int entries) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            JsonNode history = objectMapper.readTree(mockMvc.perform(get(path))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            if (history.size() >= entries || System.currentTimeMillis() > deadline) return history;
+            Thread.sleep(50);
+        }
+    }
+}
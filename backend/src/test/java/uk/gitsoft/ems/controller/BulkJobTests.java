@@ -0,0 +1,133 @@
+package uk.gitsoft.ems.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.dto.BulkJobDto;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.service.BulkJobStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkJobTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private Department closing;
+    private Department target;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+
+        closing = department("Closing");
+        target = department("Target");
+        employee("Ada", "Lovelace", closing);
+        employee("Alan", "Turing", closing);
+        employee("Grace", "Hopper", closing);
+        employee("Linus", "Torvalds", target);
+    }
+
+    @Test
+    void moveJobEmptiesDepartmentSoItCanBeDeleted() throws Exception {
+        BulkJobDto job = submit("{\"type\":\"MOVE_DEPARTMENT\",\"departmentId\":" + closing.getId()
+                + ",\"targetDepartmentId\":" + target.getId() + ",\"chunkSize\":2}");
+
+        BulkJobDto finished = awaitFinished(job.getId());
+        assertThat(finished.getStatus()).isEqualTo(BulkJobStatus.SUCCEEDED);
+        assertThat(finished.getTotal()).isEqualTo(3);
+        assertThat(finished.getAffected()).isEqualTo(3);
+        assertThat(finished.getChunks()).isEqualTo(2);
+        assertThat(employeeRepository.findAll())
+                .allSatisfy(employee -> assertThat(employee.getDepartment().getId()).isEqualTo(target.getId()));
+
+        mockMvc.perform(delete("/api/departments/{id}", closing.getId()))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void deleteJobRemovesOnlyMatchingEmployees() throws Exception {
+        BulkJobDto job = submit("{\"type\":\"DELETE\",\"namePrefix\":\"A\"}");
+
+        BulkJobDto finished = awaitFinished(job.getId());
+        assertThat(finished.getStatus()).isEqualTo(BulkJobStatus.SUCCEEDED);
+        assertThat(finished.getAffected()).isEqualTo(2);
+        assertThat(employeeRepository.findAll())
+                .extracting(Employee::getFirstname)
+                .containsExactlyInAnyOrder("Grace", "Linus");
+    }
+
+    @Test
+    void deleteJobWithoutFilterIsRejected() throws Exception {
+        mockMvc.perform(post("/api/employees/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"DELETE\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private BulkJobDto submit(String body) throws Exception {
+        String response = mockMvc.perform(post("/api/employees/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, BulkJobDto.class);
+    }
+
+    private BulkJobDto awaitFinished(String jobId) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String response = mockMvc.perform(get("/api/employees/jobs/{jobId}", jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            BulkJobDto job = objectMapper.readValue(response, BulkJobDto.class);
+            if (job.getStatus().isFinished()) return job;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+
+    private Department department(String name) {
+        Department department = new Department();
+        department.setDepartmentName(name);
+        return departmentRepository.save(department);
+    }
+
+    private void employee(String firstName, String lastName, Department department) {
+        Employee employee = new Employee();
+        employee.setFirstname(firstName);
+        employee.setLastname(lastName);
+        employee.setEmail(firstName.toLowerCase() + "@ems.test");
+        employee.setDepartment(department);
+        employeeRepository.save(employee);
+    }
+}
@@ -0,0 +1,165 @@
+package uk.gitsoft.ems.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.config.WebConfig;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ContentNegotiationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private Long employeeId;
+    private Long departmentId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        departmentId = department.getId();
+
+        Employee employee = new Employee();
+        employee.setFirstname("Ada");
+        employee.setLastname("Lovelace");
+        employee.setEmail("ada@ems.test");
+        employee.setDepartment(department);
+        employeeId = employeeRepository.save(employee).getId();
+    }
+
+    @Test
+    void employeeListIsEncodedAsCborOnRequest() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/employees").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode employees = new CBORMapper().readTree(body);
+        assertThat(employees.get(0).get("departmentName").asText()).isEqualTo("Engineering");
+    }
+
+    @Test
+    void departmentListKeepsJsonForWildcardAndHonoursSmile() throws Exception {
+        mockMvc.perform(get("/api/departments").header(HttpHeaders.ACCEPT, "*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+        mockMvc.perform(get("/api/departments").accept(WebConfig.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(WebConfig.APPLICATION_SMILE))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void eachEncodingOfTheDepartmentListHasItsOwnTag() throws Exception {
+        String json = mockMvc.perform(get("/api/departments").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cbor = mockMvc.perform(get("/api/departments").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(json).startsWith("W/\"");
+        assertThat(cbor).startsWith("W/\"").isNotEqualTo(json);
+        // A JSON tag must not revalidate a CBOR request
+        mockMvc.perform(get("/api/departments").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/departments").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cbor))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void eachEncodingOfAnEmployeeHasItsOwnStrongTag() throws Exception {
+        String json = mockMvc.perform(get("/api/employees/{id}", employeeId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cbor = mockMvc.perform(get("/api/employees/{id}", employeeId).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(json).startsWith("\"");
+        assertThat(cbor).startsWith("\"").endsWith("-cbor\"").isNotEqualTo(json);
+        mockMvc.perform(get("/api/employees/{id}", employeeId).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/employees/{id}", employeeId).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cbor))
+                .andExpect(status().isNotModified());
+
+        // Either encoding's tag still names the version for a conditional write
+        String patched = mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                        .header(HttpHeaders.IF_MATCH, cbor)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"King\"}"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(patched).endsWith("-cbor\"").isNotEqualTo(cbor);
+        mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                        .header(HttpHeaders.IF_MATCH, cbor)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"Byron\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void departmentByIdIsTaggedPerEncoding() throws Exception {
+        mockMvc.perform(get("/api/departments/{id}", departmentId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+        mockMvc.perform(get("/api/departments/{id}", departmentId).accept(WebConfig.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(WebConfig.APPLICATION_SMILE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-x-jackson-smile\""));
+        mockMvc.perform(put("/api/departments/{id}", departmentId)
+                        .header(HttpHeaders.IF_MATCH, "\"0-x-jackson-smile\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"departmentName\":\"Research\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+}
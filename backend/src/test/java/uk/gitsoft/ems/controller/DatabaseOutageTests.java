@@ -0,0 +1,146 @@
+package uk.gitsoft.ems.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.cache.StaleResponseHeaderAdvice;
+import uk.gitsoft.ems.config.DatabaseCircuitBreaker;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Long enough to finish the requests made while open, short enough for each test to let it close again
+@SpringBootTest(properties = "ems.db.circuit.open-duration=2s")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DatabaseOutageTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private DatabaseCircuitBreaker circuitBreaker;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long employeeId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        Employee employee = new Employee();
+        employee.setFirstname("Ada");
+        employee.setLastname("Lovelace");
+        employee.setEmail("ada@ems.test");
+        employee.setDepartment(department);
+        employeeId = employeeRepository.save(employee).getId();
+    }
+
+    @AfterEach
+    void recover() throws InterruptedException {
+        closeCircuit();
+    }
+
+    @Test
+    void lastKnownGoodCopiesAreServedWhileTheCircuitIsOpen() throws Exception {
+        mockMvc.perform(get("/api/employees/" + employeeId))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(StaleResponseHeaderAdvice.STALE_HEADER));
+        mockMvc.perform(get("/api/employees").param("limit", "10")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/departments")).andExpect(status().isOk());
+
+        openCircuit();
+        // Forces the department snapshot to go back to the database
+        departmentCache.invalidate();
+
+        mockMvc.perform(get("/api/employees/" + employeeId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StaleResponseHeaderAdvice.STALE_HEADER, "true"))
+                .andExpect(header().exists(HttpHeaders.AGE))
+                .andExpect(jsonPath("$.lastName").value("Lovelace"));
+        mockMvc.perform(get("/api/employees").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StaleResponseHeaderAdvice.STALE_HEADER, "true"))
+                .andExpect(jsonPath("$[0].id").value(employeeId));
+        mockMvc.perform(get("/api/departments"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StaleResponseHeaderAdvice.STALE_HEADER, "true"))
+                .andExpect(jsonPath("$[0].departmentName").value("Engineering"));
+
+        // Nothing to fall back on: fail fast with 503
+        mockMvc.perform(get("/api/employees").param("limit", "5"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void staleEntriesAreRevalidatedOnceTheDatabaseRecovers() throws Exception {
+        mockMvc.perform(get("/api/employees/" + employeeId)).andExpect(status().isOk());
+        // Changed behind the cache's back, e.g. by another instance
+        Employee employee = employeeRepository.findById(employeeId).orElseThrow();
+        employee.setLastname("King");
+        employeeRepository.save(employee);
+
+        openCircuit();
+        mockMvc.perform(get("/api/employees/" + employeeId))
+                .andExpect(header().string(StaleResponseHeaderAdvice.STALE_HEADER, "true"))
+                .andExpect(jsonPath("$.lastName").value("Lovelace"));
+
+        double before = meterRegistry.counter("ems.db.stale-cache.revalidated").count();
+        closeCircuit();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("ems.db.stale-cache.revalidated").count() == before
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(meterRegistry.counter("ems.db.stale-cache.revalidated").count()).isGreaterThan(before);
+
+        mockMvc.perform(get("/api/employees/" + employeeId))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(StaleResponseHeaderAdvice.STALE_HEADER))
+                .andExpect(jsonPath("$.lastName").value("King"));
+    }
+
+    private void openCircuit() {
+        while (!circuitBreaker.isOpen()) circuitBreaker.recordFailure();
+    }
+
+    // After the open period the next connection request is the trial that closes it
+    private void closeCircuit() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (circuitBreaker.isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            try {
+                employeeRepository.count();
+            } catch (RuntimeException ignored) {
+                // Still open
+            }
+        }
+        assertThat(circuitBreaker.isOpen()).isFalse();
+    }
+}
@@ -0,0 +1,162 @@
+package uk.gitsoft.ems.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gitsoft.ems.cache.DepartmentHeadcounts;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.support.QueryBudget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DepartmentStatsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private DepartmentHeadcounts headcounts;
+
+    private Long engineeringId;
+    private Long salesId;
+    private Long movedEmployeeId;
+    private Long leavingEmployeeId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        headcounts.invalidate();
+
+        Department engineering = department("Engineering");
+        Department sales = department("Sales");
+        department("Legal");
+        engineeringId = engineering.getId();
+        salesId = sales.getId();
+
+        movedEmployeeId = employee("Ada", engineering).getId();
+        leavingEmployeeId = employee("Grace", engineering).getId();
+        employee("Alan", sales);
+    }
+
+    @Test
+    void statsAreCountedByTheDatabase() throws Exception {
+        mockMvc.perform(get("/api/departments/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalEmployees").value(3))
+                .andExpect(jsonPath("$.departmentCount").value(3))
+                .andExpect(jsonPath("$.emptyDepartments").value(1))
+                .andExpect(jsonPath("$.largestHeadcount").value(2))
+                .andExpect(jsonPath("$.departments[0].departmentName").value("Engineering"))
+                .andExpect(jsonPath("$.departments[0].headcount").value(2))
+                .andExpect(jsonPath("$.departments[1].headcount").value(1))
+                .andExpect(jsonPath("$.departments[2].headcount").value(0));
+    }
+
+    @Test
+    void writesKeepCountsCurrentWithoutRecounting() throws Exception {
+        mockMvc.perform(get("/api/departments/stats")).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Linus\",\"lastName\":\"T\",\"email\":\"linus@ems.test\",\"departmentId\":" + salesId + "}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(patch("/api/employees/{id}", movedEmployeeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"departmentId\":" + salesId + "}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/employees/{id}", leavingEmployeeId))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/departments/stats"))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.exactly(0))
+                .andExpect(jsonPath("$.totalEmployees").value(3))
+                .andExpect(jsonPath("$.departments[0].departmentId").value(engineeringId))
+                .andExpect(jsonPath("$.departments[0].headcount").value(0))
+                .andExpect(jsonPath("$.departments[1].headcount").value(3));
+    }
+
+    @Test
+    void countsMoveOnlyWhenTheWriteCommits() {
+        assertThat(headcounts.headcount(engineeringId)).isEqualTo(2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            headcounts.adjust(engineeringId, salesId);
+            assertThat(headcounts.headcount(engineeringId)).isEqualTo(2);
+        } finally {
+            // Rolled back: the synchronizations are dropped without running
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(headcounts.headcount(engineeringId)).isEqualTo(2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            headcounts.adjust(engineeringId, salesId);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(headcounts.headcount(engineeringId)).isEqualTo(1);
+        assertThat(headcounts.headcount(salesId)).isEqualTo(2);
+    }
+
+    @Test
+    void departmentAddedBehindTheSnapshotIsStillFound() throws Exception {
+        mockMvc.perform(get("/api/departments")).andExpect(status().isOk());
+        // As if written by another instance: this one's snapshot is not invalidated
+        Long financeId = department("Finance").getId();
+
+        mockMvc.perform(get("/api/departments/{id}", financeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.departmentName").value("Finance"));
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Linus\",\"lastName\":\"T\",\"email\":\"linus@ems.test\",\"departmentId\":" + financeId + "}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/departments/{id}", financeId + 100))
+                .andExpect(status().isNotFound());
+    }
+
+    private Department department(String name) {
+        Department department = new Department();
+        department.setDepartmentName(name);
+        return departmentRepository.save(department);
+    }
+
+    private Employee employee(String firstName, Department department) {
+        Employee employee = new Employee();
+        employee.setFirstname(firstName);
+        employee.setLastname("Test");
+        employee.setEmail(firstName.toLowerCase() + "@ems.test");
+        employee.setDepartment(department);
+        return employeeRepository.save(employee);
+    }
+}
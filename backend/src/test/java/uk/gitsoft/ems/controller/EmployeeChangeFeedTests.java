@@ -0,0 +1,141 @@
+package uk.gitsoft.ems.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeChangeFeedTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private Long departmentId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        departmentId = departmentRepository.save(department).getId();
+    }
+
+    @Test
+    void changesSinceATokenAreCoalescedPerEmployee() throws Exception {
+        long token = currentToken();
+        long kept = create("ada@ems.test");
+        long removed = create("grace@ems.test");
+        mockMvc.perform(patch("/api/employees/" + kept)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"Byron\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/employees/" + removed)).andExpect(status().isNoContent());
+
+        MvcResult result = mockMvc.perform(get("/api/employees/changes").param("since", Long.toString(token)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserted.length()").value(1))
+                .andExpect(jsonPath("$.upserted[0].id").value(kept))
+                .andExpect(jsonPath("$.upserted[0].lastName").value("Byron"))
+                .andExpect(jsonPath("$.deleted[0]").value(removed))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn();
+        long nextToken = json(result).get("nextToken").asLong();
+        assertThat(nextToken).isGreaterThan(token);
+
+        mockMvc.perform(get("/api/employees/changes").param("since", Long.toString(nextToken)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserted.length()").value(0))
+                .andExpect(jsonPath("$.deleted.length()").value(0))
+                .andExpect(jsonPath("$.nextToken").value(nextToken));
+    }
+
+    @Test
+    void pagesFollowTheLimit() throws Exception {
+        long token = currentToken();
+        create("a@ems.test");
+        create("b@ems.test");
+        create("c@ems.test");
+
+        mockMvc.perform(get("/api/employees/changes").param("since", Long.toString(token)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserted.length()").value(2))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    void unknownTokenIsGone() throws Exception {
+        create("ada@ems.test");
+        long future = currentToken() + 1000;
+        mockMvc.perform(get("/api/employees/changes").param("since", Long.toString(future)))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void streamPushesCommittedChanges() throws Exception {
+        long token = currentToken();
+        MvcResult stream = mockMvc.perform(get("/api/employees/changes/stream").param("since", Long.toString(token)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        long created = create("ada@ems.test");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        String body = stream.getResponse().getContentAsString();
+        while (!body.contains("\"id\":" + created) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            body = stream.getResponse().getContentAsString();
+        }
+        assertThat(body).contains("event:changes").contains("\"id\":" + created);
+    }
+
+    private long currentToken() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/employees/changes")).andExpect(status().isOk()).andReturn();
+        return json(result).get("nextToken").asLong();
+    }
+
+    private long create(String email) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"" + email
+                                + "\",\"departmentId\":" + departmentId + "}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return json(result).get("id").asLong();
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gitsoft.ems.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeConditionalRequestTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    // Version 0 in the Engineering department
+    private static final String INITIAL_TAG = "\"0-" + Integer.toHexString("Engineering".hashCode()) + "\"";
+
+    private Long employeeId;
+    private Long departmentId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        departmentId = department.getId();
+
+        Employee employee = new Employee();
+        employee.setFirstname("Ada");
+        employee.setLastname("Lovelace");
+        employee.setEmail("ada@ems.test");
+        employee.setDepartment(department);
+        employeeId = employeeRepository.save(employee).getId();
+    }
+
+    @Test
+    void unchangedEmployeeReturnsNotModified() throws Exception {
+        mockMvc.perform(get("/api/employees/{id}", employeeId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, INITIAL_TAG));
+
+        mockMvc.perform(get("/api/employees/{id}", employeeId).header(HttpHeaders.IF_NONE_MATCH, INITIAL_TAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void departmentRenameInvalidatesTheEmployeeTags() throws Exception {
+        String pageTag = mockMvc.perform(get("/api/employees"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String fieldsTag = mockMvc.perform(get("/api/employees").param("fields", "id,departmentName"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/api/departments/{id}", departmentId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"departmentName\":\"Research\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/employees/{id}", employeeId).header(HttpHeaders.IF_NONE_MATCH, INITIAL_TAG))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.departmentName").value("Research"));
+        mockMvc.perform(get("/api/employees").header(HttpHeaders.IF_NONE_MATCH, pageTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].departmentName").value("Research"));
+        mockMvc.perform(get("/api/employees").param("fields", "id,departmentName")
+                        .header(HttpHeaders.IF_NONE_MATCH, fieldsTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].departmentName").value("Research"));
+    }
+
+    @Test
+    void staleIfMatchIsRejected() throws Exception {
+        mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                        .header(HttpHeaders.IF_MATCH, INITIAL_TAG)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Augusta\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"1-")));
+
+        mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Ada\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+}
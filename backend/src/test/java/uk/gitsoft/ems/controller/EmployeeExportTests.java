@@ -0,0 +1,133 @@
+package uk.gitsoft.ems.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeExportTests {
+
+    // More than the largest list page and more than one flush batch
+    private static final int BULK_ROWS = 1_200;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Department department;
+    private Long awkwardId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        department = new Department();
+        department.setDepartmentName("R&D, \"Labs\"");
+        department = departmentRepository.save(department);
+
+        Employee awkward = new Employee();
+        awkward.setFirstname("Ada \"The Countess\"");
+        awkward.setLastname("Love,lace\nKing");
+        awkward.setEmail("ada@ems.test");
+        awkward.setDepartment(department);
+        awkwardId = employeeRepository.save(awkward).getId();
+    }
+
+    @Test
+    void csvHasAHeaderAndQuotesAwkwardFields() throws Exception {
+        String csv = export("csv", "text/csv");
+
+        assertThat(csv).isEqualTo("id,firstName,lastName,email,departmentId,departmentName\n"
+                + awkwardId + ",\"Ada \"\"The Countess\"\"\",\"Love,lace\nKing\",ada@ems.test,"
+                + department.getId() + ",\"R&D, \"\"Labs\"\"\"\n");
+    }
+
+    @Test
+    void ndjsonIsOneCompleteObjectPerLine() throws Exception {
+        insertBulkRows();
+
+        String ndjson = export("ndjson", "application/x-ndjson");
+
+        assertThat(ndjson).endsWith("\n");
+        String[] lines = ndjson.split("\n", -1);
+        // The trailing newline leaves one empty element; embedded newlines stay escaped inside their line
+        assertThat(lines).hasSize(BULK_ROWS + 2);
+        assertThat(lines[lines.length - 1]).isEmpty();
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(awkwardId);
+        assertThat(first.get("lastName").asText()).isEqualTo("Love,lace\nKing");
+        assertThat(first.get("departmentName").asText()).isEqualTo("R&D, \"Labs\"");
+        for (int i = 0; i < lines.length - 1; i++) {
+            assertThat(objectMapper.readTree(lines[i]).has("email")).isTrue();
+        }
+    }
+
+    @Test
+    void exportStreamsTheWholeTableNotOnePage() throws Exception {
+        insertBulkRows();
+
+        String csv = export("csv", "text/csv");
+
+        // Header, the awkward row (one quoted line break) and every bulk row
+        assertThat(csv.split("\n")).hasSize(1 + 2 + BULK_ROWS);
+        assertThat(csv).contains("bulk0@ems.test").contains("bulk" + (BULK_ROWS - 1) + "@ems.test");
+    }
+
+    private String export(String format, String contentType) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/employees/export").param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(contentType))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private void insertBulkRows() {
+        List<Object[]> rows = new ArrayList<>(BULK_ROWS);
+        for (int i = 0; i < BULK_ROWS; i++) {
+            rows.add(new Object[]{"First" + i, "Last" + i, "bulk" + i + "@ems.test", department.getId()});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into employees (first_name, last_name, email_id, department_id, version) values (?, ?, ?, ?, 0)",
+                rows);
+    }
+}
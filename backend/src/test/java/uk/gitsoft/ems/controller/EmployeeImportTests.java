@@ -0,0 +1,205 @@
+package uk.gitsoft.ems.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeImportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long departmentId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        jdbcTemplate.update("delete from employee_changes");
+
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        departmentId = department.getId();
+
+        Employee existing = new Employee();
+        existing.setFirstname("Ada");
+        existing.setLastname("Lovelace");
+        existing.setEmail("ada@ems.test");
+        existing.setDepartment(department);
+        employeeRepository.save(existing);
+    }
+
+    @Test
+    void invalidRowsAreReportedAndTheRestInserted() throws Exception {
+        importJson(null, List.of(
+                        row("Grace", "Hopper", "grace@ems.test", departmentId),
+                        "{\"firstName\":\"\",\"lastName\":\"Turing\",\"email\":\"not-an-email\",\"departmentId\":" + departmentId + "}",
+                        row("Linus", "Torvalds", "linus@ems.test", departmentId + 100),
+                        "{\"firstName\":\"Ken\",\"lastName\":\"Thompson\",\"email\":\"ken@ems.test\",\"departmentId\":\"abc\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("First name is required; Invalid email format"))
+                .andExpect(jsonPath("$.errors[1].row").value(4))
+                .andExpect(jsonPath("$.errors[1].message", containsString("Invalid record")))
+                .andExpect(jsonPath("$.errors[2].row").value(3))
+                .andExpect(jsonPath("$.errors[2].message").value("Department not found: " + (departmentId + 100)));
+
+        assertThat(employeeRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void csvRowsAreValidatedLikeJson() throws Exception {
+        String csv = """
+                firstName,lastName,email,departmentId
+                Grace,Hopper,grace@ems.test,%d
+                "Smith, Jr",Bob,bob@ems.test,%d
+                Ken,Thompson,ken@ems.test,abc
+                """.formatted(departmentId, departmentId);
+
+        mockMvc.perform(post("/api/employees/batch").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.errors[0].row").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("Invalid departmentId: abc"));
+
+        assertThat(employeeRepository.findAll()).extracting(Employee::getFirstname).contains("Smith, Jr");
+    }
+
+    @Test
+    void duplicateEmailsAreRejectedWithinTheFileAndAgainstTheDatabase() throws Exception {
+        importJson(null, List.of(
+                        row("Ada", "Again", "ada@ems.test", departmentId),
+                        row("Grace", "Hopper", "grace@ems.test", departmentId),
+                        row("Grace", "Twice", "GRACE@ems.test", departmentId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].row").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Email already exists"))
+                .andExpect(jsonPath("$.errors[1].row").value(3))
+                .andExpect(jsonPath("$.errors[1].message").value("Duplicate email in import"));
+    }
+
+    @Test
+    void duplicatesAreCaughtAcrossChunkBoundaries() throws Exception {
+        // Chunks of two: rows 1-2, 3-4 and 5. Row 4 repeats row 1, already written by an earlier
+        // chunk, in a different case the database lookup would not match
+        importJson(2, List.of(
+                        row("A", "One", "a1@ems.test", departmentId),
+                        row("A", "Two", "a2@ems.test", departmentId),
+                        row("A", "Three", "a3@ems.test", departmentId),
+                        row("A", "Four", "A1@ems.test", departmentId),
+                        row("A", "Five", "a5@ems.test", departmentId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.inserted").value(4))
+                .andExpect(jsonPath("$.errors.length()").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(4))
+                .andExpect(jsonPath("$.errors[0].message").value("Duplicate email in import"));
+
+        assertThat(employeeRepository.count()).isEqualTo(5);
+        assertThat(changeLogRows()).isEqualTo(4);
+    }
+
+    @Test
+    void chunkSizeOutOfRangeIsABadRequest() throws Exception {
+        importJson(0, List.of(row("A", "One", "a1@ems.test", departmentId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void aFailedBatchIsRetriedRowByRow() throws Exception {
+        // Passes validation but not the varchar(255) column, so only the database rejects it
+        String tooLong = "x".repeat(300);
+
+        importJson(null, List.of(
+                        row("Grace", "Hopper", "grace@ems.test", departmentId),
+                        row(tooLong, "Long", "long@ems.test", departmentId),
+                        row("Linus", "Torvalds", "linus@ems.test", departmentId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].email").value("long@ems.test"));
+
+        assertThat(employeeRepository.findAll()).extracting(Employee::getEmail)
+                .containsExactlyInAnyOrder("ada@ems.test", "grace@ems.test", "linus@ems.test");
+        // The failed batch left no change-log rows behind; each retried row wrote its own
+        assertThat(changeLogRows()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from employee_changes c join employees e on e.id = c.employee_id"
+                        + " where e.email_id in ('grace@ems.test', 'linus@ems.test') and c.change_type = 'UPSERT'",
+                Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void importedRowsAreSearchableAndInTheChangeLog() throws Exception {
+        importJson(null, List.of(row("Grace", "Importwright", "grace@ems.test", departmentId)))
+                .andExpect(status().isOk());
+        Long id = employeeRepository.findAll().stream()
+                .filter(employee -> employee.getEmail().equals("grace@ems.test"))
+                .findFirst().orElseThrow().getId();
+
+        assertThat(jdbcTemplate.queryForList("select employee_id from employee_changes", Long.class)).containsExactly(id);
+        mockMvc.perform(get("/api/employees/search").param("q", "Importw"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id))
+                .andExpect(jsonPath("$[0].departmentName").value("Engineering"));
+    }
+
+    private ResultActions importJson(Integer chunkSize, List<String> rows) throws Exception {
+        MockHttpServletRequestBuilder request = post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + String.join(",", rows) + "]");
+        if (chunkSize != null) request.param("chunkSize", chunkSize.toString());
+        return mockMvc.perform(request);
+    }
+
+    private int changeLogRows() {
+        return jdbcTemplate.queryForObject("select count(*) from employee_changes", Integer.class);
+    }
+
+    private static String row(String firstName, String lastName, String email, Long departmentId) {
+        return "{\"firstName\":\"" + firstName + "\",\"lastName\":\"" + lastName + "\",\"email\":\"" + email
+                + "\",\"departmentId\":" + departmentId + "}";
+    }
+}
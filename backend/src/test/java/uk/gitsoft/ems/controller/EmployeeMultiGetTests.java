@@ -0,0 +1,159 @@
+package uk.gitsoft.ems.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.service.EmployeeService;
+import uk.gitsoft.ems.support.QueryBudget;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A wide batch window so concurrent lookups reliably land in the same batch
+@SpringBootTest(properties = "ems.employee-lookup.batch-window=200ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeMultiGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeService employeeService;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        ids.clear();
+        for (int i = 0; i < 5; i++) {
+            Employee employee = new Employee();
+            employee.setFirstname("First" + i);
+            employee.setLastname("Last" + i);
+            employee.setEmail("employee" + i + "@ems.test");
+            employee.setDepartment(department);
+            ids.add(employeeRepository.save(employee).getId());
+        }
+    }
+
+    @Test
+    void multiGetKeepsRequestOrderAndSkipsUnknownIds() throws Exception {
+        mockMvc.perform(get("/api/employees").param("ids", ids.get(3) + "," + 999_999 + "," + ids.get(0) + "," + ids.get(3)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(ids.get(3)))
+                .andExpect(jsonPath("$[1].id").value(ids.get(0)))
+                .andExpect(jsonPath("$[1].departmentName").value("Engineering"));
+    }
+
+    @Test
+    void multiGetRejectsInvalidIds() throws Exception {
+        mockMvc.perform(get("/api/employees").param("ids", "1,-2")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("ids", "1,x")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void concurrentLookupsShareOneQuery() throws Exception {
+        DistributionSummary batches = meterRegistry.get("ems.employee.lookup.batch.size").summary();
+        long batchesBefore = batches.count();
+        double coalescedBefore = meterRegistry.get("ems.employee.lookup.coalesced").counter().count();
+
+        int callers = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EmployeeDto>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                Long id = ids.get(i % ids.size());
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return employeeService.getEmployeeById(id);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < callers; i++) {
+                assertThat(results.get(i).get().getId()).isEqualTo(ids.get(i % ids.size()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(batches.count() - batchesBefore).isLessThan(callers);
+        assertThat(meterRegistry.get("ems.employee.lookup.coalesced").counter().count()).isGreaterThan(coalescedBefore);
+    }
+
+    @Test
+    void aLookupWithNoOtherInFlightDoesNotWaitForTheWindow() {
+        employeeService.getEmployeeById(ids.get(0));
+        long batchesBefore = meterRegistry.get("ems.employee.lookup.batch.size").summary().count();
+
+        long started = System.nanoTime();
+        assertThat(employeeService.getEmployeeById(ids.get(1)).getId()).isEqualTo(ids.get(1));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(200));
+        assertThat(meterRegistry.get("ems.employee.lookup.batch.size").summary().count()).isEqualTo(batchesBefore);
+    }
+
+    @Test
+    void aBatchedQueryCountsForEveryRequestItAnswered() throws Exception {
+        long batchesBefore = meterRegistry.get("ems.employee.lookup.batch.size").summary().count();
+        int callers = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MvcResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                Long id = ids.get(i % ids.size());
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(get("/api/employees/{id}", id)).andExpect(status().isOk()).andReturn();
+                }));
+            }
+            start.countDown();
+            for (Future<MvcResult> result : results) {
+                // Not only the request whose thread ran the batch
+                QueryBudget.exactly(1).match(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(meterRegistry.get("ems.employee.lookup.batch.size").summary().count() - batchesBefore)
+                .isGreaterThan(0);
+    }
+}
@@ -0,0 +1,148 @@
+package uk.gitsoft.ems.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeePaginationTests {
+
+    private static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        ids.clear();
+        // Names a LIKE pattern would confuse if the client's wildcards were not escaped
+        for (String firstName : List.of("100%", "1000", "a_b", "axb", "c\\d", "cd")) {
+            Employee employee = new Employee();
+            employee.setFirstname(firstName);
+            employee.setLastname("Test");
+            employee.setEmail("employee" + ids.size() + "@ems.test");
+            employee.setDepartment(department);
+            ids.add(employeeRepository.save(employee).getId());
+        }
+    }
+
+    @Test
+    void cursorWalksEveryRowOnceInIdOrder() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/employees").param("limit", "4");
+            if (cursor != null) request.param("after", cursor);
+            MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+            List<Integer> pageIds = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+            pageIds.forEach(id -> seen.add(id.longValue()));
+            cursor = result.getResponse().getHeader(NEXT_CURSOR);
+            if (cursor != null) {
+                // The cursor is the last id on the page
+                assertThat(Long.valueOf(cursor)).isEqualTo(seen.get(seen.size() - 1));
+            }
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(2);
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void aPageThatEndsExactlyOnTheLastRowHasNoNextCursor() throws Exception {
+        mockMvc.perform(get("/api/employees").param("limit", "6"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6))
+                .andExpect(header().doesNotExist(NEXT_CURSOR));
+        mockMvc.perform(get("/api/employees").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(header().string(NEXT_CURSOR, ids.get(4).toString()));
+        mockMvc.perform(get("/api/employees").param("after", ids.get(4).toString()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(ids.get(5)))
+                .andExpect(header().doesNotExist(NEXT_CURSOR));
+    }
+
+    @Test
+    void cursorPastTheEndIsAnEmptyLastPage() throws Exception {
+        mockMvc.perform(get("/api/employees").param("after", String.valueOf(ids.get(5) + 1000)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0))
+                .andExpect(header().doesNotExist(NEXT_CURSOR));
+    }
+
+    @Test
+    void malformedCursorOrLimitIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/employees").param("after", "abc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("after", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("after", "1e3"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void wildcardsInTheNameFilterMatchLiterally() throws Exception {
+        mockMvc.perform(get("/api/employees").param("name", "100%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].firstName").value("100%"));
+        mockMvc.perform(get("/api/employees").param("name", "a_"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].firstName").value("a_b"));
+        mockMvc.perform(get("/api/employees").param("name", "c\\"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].firstName").value("c\\d"));
+        // The sparse list builds its own SQL with a different escape character
+        mockMvc.perform(get("/api/employees").param("fields", "id,firstName").param("name", "a_"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].firstName").value("a_b"));
+    }
+}
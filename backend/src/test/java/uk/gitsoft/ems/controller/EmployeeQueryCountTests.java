@@ -0,0 +1,191 @@
+package uk.gitsoft.ems.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.mapper.DepartmentMapper;
+import uk.gitsoft.ems.mapper.EmployeeMapper;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.search.EmployeeSearchIndex;
+import uk.gitsoft.ems.support.QueryBudget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the read path against N+1 department loads: each read endpoint must
+ * be answered with a single SQL statement regardless of how many departments
+ * the returned employees belong to. Writes are held to their minimum. Counting
+ * happens at the JDBC level, so besides the Hibernate statements (one insert
+ * to create, a select plus an update to modify, one delete) every write pays
+ * for the change-log row it appends, a delete for the lookup of reports to
+ * re-attach, and a placement under a manager for the reporting lines.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeQueryCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    private Statistics statistics;
+    private Long firstEmployeeId;
+    private Long otherDepartmentId;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+
+        Department[] departments = new Department[3];
+        for (int i = 0; i < departments.length; i++) {
+            Department department = new Department();
+            department.setDepartmentName("Department " + i);
+            department.setDepartmentDescription("Test department " + i);
+            departments[i] = departmentRepository.save(department);
+        }
+        for (int i = 0; i < 12; i++) {
+            Employee employee = new Employee();
+            employee.setFirstname("First" + i);
+            employee.setLastname("Last" + i);
+            employee.setEmail("employee" + i + "@ems.test");
+            employee.setDepartment(departments[i % departments.length]);
+            Employee saved = employeeRepository.save(employee);
+            searchIndex.put(EmployeeMapper.mapToEmployeeDto(saved, DepartmentMapper.mapToDepartmentDto(departments[i % departments.length])));
+            if (firstEmployeeId == null || saved.getId() < firstEmployeeId) {
+                firstEmployeeId = saved.getId();
+            }
+        }
+
+        otherDepartmentId = departments[1].getId();
+        // Load the department snapshot up front; department checks on writes are then free
+        departmentCache.getAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getEmployeeByIdRunsOneStatement() throws Exception {
+        mockMvc.perform(get("/api/employees/{id}", firstEmployeeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.departmentName").value("Department 0"))
+                .andExpect(QueryBudget.exactly(1));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void multiGetRunsOneStatement() throws Exception {
+        mockMvc.perform(get("/api/employees").param("ids",
+                        firstEmployeeId + "," + (firstEmployeeId + 1) + "," + (firstEmployeeId + 2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(QueryBudget.exactly(1));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void listEmployeesRunsOneStatementAcrossDepartments() throws Exception {
+        mockMvc.perform(get("/api/employees").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(12))
+                .andExpect(jsonPath("$[2].departmentName").value("Department 2"))
+                .andExpect(QueryBudget.exactly(1));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void createEmployeeRunsOneInsertPlusTheChangeLog() throws Exception {
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"New\",\"lastName\":\"Hire\",\"email\":\"new@ems.test\",\"departmentId\":" + otherDepartmentId + "}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.departmentName").value("Department 1"))
+                .andExpect(QueryBudget.exactly(2));
+    }
+
+    @Test
+    void createEmployeeUnderAManagerAddsTheReportingLines() throws Exception {
+        // Manager row lock, the insert, two closure-table inserts and the change log
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"New\",\"lastName\":\"Report\",\"email\":\"report@ems.test\",\"departmentId\":"
+                                + otherDepartmentId + ",\"managerId\":" + firstEmployeeId + "}"))
+                .andExpect(status().isCreated())
+                .andExpect(QueryBudget.exactly(5));
+    }
+
+    @Test
+    void updateEmployeeRunsOneSelectOneUpdateAndTheChangeLog() throws Exception {
+        mockMvc.perform(put("/api/employees/{id}", firstEmployeeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Renamed\",\"lastName\":\"Last0\",\"email\":\"employee0@ems.test\",\"departmentId\":" + otherDepartmentId + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.departmentName").value("Department 1"))
+                .andExpect(QueryBudget.exactly(3));
+    }
+
+    @Test
+    void patchEmployeeRunsOneSelectOneUpdateAndTheChangeLog() throws Exception {
+        mockMvc.perform(patch("/api/employees/{id}", firstEmployeeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"Patched\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Patched"))
+                .andExpect(QueryBudget.exactly(3));
+    }
+
+    @Test
+    void patchWithoutChangesSkipsTheUpdate() throws Exception {
+        mockMvc.perform(patch("/api/employees/{id}", firstEmployeeId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"Last0\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andExpect(QueryBudget.exactly(1));
+    }
+
+    @Test
+    void deleteEmployeeRunsTheReportsLookupOneDeleteAndTheChangeLog() throws Exception {
+        mockMvc.perform(delete("/api/employees/{id}", firstEmployeeId))
+                .andExpect(status().isNoContent())
+                .andExpect(QueryBudget.exactly(3));
+
+        mockMvc.perform(delete("/api/employees/{id}", firstEmployeeId))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,130 @@
+package uk.gitsoft.ems.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeSparseFieldsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        ids.clear();
+        for (int i = 0; i < 3; i++) {
+            Employee employee = new Employee();
+            employee.setFirstname("First" + i);
+            employee.setLastname("Last" + i);
+            employee.setEmail("employee" + i + "@ems.test");
+            employee.setDepartment(i < 2 ? department : null);
+            ids.add(employeeRepository.save(employee).getId());
+        }
+    }
+
+    @Test
+    void returnsOnlyTheRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/employees").param("fields", "firstName,id"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(ids.get(0)))
+                .andExpect(jsonPath("$[0].firstName").value("First0"))
+                .andExpect(jsonPath("$[0].lastName").doesNotExist())
+                .andExpect(jsonPath("$[0].version").doesNotExist())
+                .andExpect(jsonPath("$[0].departmentName").doesNotExist());
+    }
+
+    @Test
+    void departmentNameComesFromTheJoinAndIsNullWithoutADepartment() throws Exception {
+        mockMvc.perform(get("/api/employees").param("fields", "id,departmentName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].departmentName").value("Engineering"))
+                .andExpect(jsonPath("$[2].departmentName").value(nullValue()))
+                .andExpect(jsonPath("$[2].departmentId").doesNotExist());
+    }
+
+    @Test
+    void filtersAndCursorWorkAsOnTheFullList() throws Exception {
+        mockMvc.perform(get("/api/employees").param("fields", "id").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string(EmployeeController.NEXT_CURSOR_HEADER, ids.get(1).toString()));
+
+        mockMvc.perform(get("/api/employees").param("fields", "id").param("after", ids.get(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(ids.get(2)))
+                .andExpect(header().doesNotExist(EmployeeController.NEXT_CURSOR_HEADER));
+
+        mockMvc.perform(get("/api/employees").param("fields", "email").param("name", "First1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].email").value("employee1@ems.test"));
+    }
+
+    @Test
+    void etagDependsOnTheFieldSetAndAnswers304WhenUnchanged() throws Exception {
+        MvcResult sparse = mockMvc.perform(get("/api/employees").param("fields", "id,firstName"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = sparse.getResponse().getHeader("ETag");
+        String other = mockMvc.perform(get("/api/employees").param("fields", "id,lastName"))
+                .andReturn().getResponse().getHeader("ETag");
+        String full = mockMvc.perform(get("/api/employees")).andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull().isNotEqualTo(other).isNotEqualTo(full);
+
+        mockMvc.perform(get("/api/employees").param("fields", "firstName,id").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void rejectsUnknownOrEmptyFieldsAndIds() throws Exception {
+        mockMvc.perform(get("/api/employees").param("fields", "id,salary"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown field: salary"));
+        mockMvc.perform(get("/api/employees").param("fields", " , "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("fields", "id").param("ids", ids.get(0).toString()))
+                .andExpect(status().isBadRequest());
+    }
+}
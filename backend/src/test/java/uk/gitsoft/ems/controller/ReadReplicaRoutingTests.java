@@ -0,0 +1,147 @@
+package uk.gitsoft.ems.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.config.ReplicaLagMonitor;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory databases stand in for primary and replica. There is no
+ * replication between them, so which one answered shows in the data.
+ */
+@SpringBootTest(properties = {
+        "ems.datasource.replica.url=jdbc:h2:mem:ems_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        // Probes are run by the tests themselves
+        "ems.datasource.replica.lag-probe-interval=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReadReplicaRoutingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private Department department;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        primary.update("delete from employee_changes");
+        departmentCache.invalidate();
+
+        replica.execute("drop all objects");
+        new ResourceDatabasePopulator(
+                new ClassPathResource("db/migration/V1__baseline.sql"),
+                new ClassPathResource("db/migration/V2__versions_and_change_log.sql"),
+                new ClassPathResource("db/migration/V3__employee_indexes.sql"),
+                new ClassPathResource("db/migration/V4__reporting_lines.sql"),
+                new ClassPathResource("db/migration/V5__audit_history.sql")).execute(replicaDataSource);
+
+        department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        replica.update("insert into departments (id, department_name, version) values (?, ?, 0)",
+                department.getId(), department.getDepartmentName());
+        lagMonitor.probe();
+    }
+
+    @Test
+    void readOnlyReadsGoToTheReplica() throws Exception {
+        Employee employee = saveOnPrimary("Primary");
+        replica.update("insert into employees (id, first_name, last_name, email_id, department_id, version) "
+                + "values (?, 'Ada', 'Replica', 'ada@ems.test', ?, 0)", employee.getId(), department.getId());
+
+        mockMvc.perform(get("/api/employees/" + employee.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Replica"));
+    }
+
+    @Test
+    void writerReadsItsOwnWriteFromThePrimary() throws Exception {
+        MvcResult created = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@ems.test\",\"departmentId\":"
+                                + department.getId() + "}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie lastWrite = created.getResponse().getCookie("EMS_LAST_WRITE");
+        assertThat(lastWrite).isNotNull();
+        // Not employeeRepository.findAll(): Spring Data's read-only transaction would ask the replica
+        Integer id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+        String location = "/api/employees/" + id;
+
+        mockMvc.perform(get(location).cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Lovelace"));
+        // Anyone else reads the replica, which never received the row
+        mockMvc.perform(get(location)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void laggingReplicaIsTakenOutOfRotation() throws Exception {
+        Employee employee = saveOnPrimary("Primary");
+        primary.update("insert into employee_changes (employee_id, change_type, changed_at) values (?, 'UPSERT', ?)",
+                employee.getId(), Timestamp.from(Instant.now().minusSeconds(60)));
+        lagMonitor.probe();
+        assertThat(lagMonitor.isReplicaUsable()).isFalse();
+
+        mockMvc.perform(get("/api/employees/" + employee.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Primary"));
+    }
+
+    private Employee saveOnPrimary(String lastName) {
+        Employee employee = new Employee();
+        employee.setFirstname("Ada");
+        employee.setLastname(lastName);
+        employee.setEmail("ada@ems.test");
+        employee.setDepartment(department);
+        return employeeRepository.save(employee);
+    }
+}
@@ -0,0 +1,185 @@
+package uk.gitsoft.ems.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Org chart used throughout:
+ * ceo
+ * ├── vp1
+ * │   └── lead
+ * │       ├── dev1
+ * │       └── dev2
+ * └── vp2
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReportingLineTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private Long departmentId;
+    private long ceo, vp1, vp2, lead, dev1, dev2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        departmentId = departmentRepository.save(department).getId();
+
+        ceo = create("ceo", null);
+        vp1 = create("vp1", ceo);
+        vp2 = create("vp2", ceo);
+        lead = create("lead", vp1);
+        dev1 = create("dev1", lead);
+        dev2 = create("dev2", lead);
+    }
+
+    @Test
+    void hierarchyQueries() throws Exception {
+        assertThat(ids(get("/api/employees/{id}/reports", ceo))).containsExactly(vp1, vp2);
+        assertThat(ids(get("/api/employees/{id}/subtree", ceo))).containsExactly(vp1, vp2, lead, dev1, dev2);
+        assertThat(ids(get("/api/employees/{id}/chain", dev1))).containsExactly(lead, vp1, ceo);
+        assertThat(ids(get("/api/employees/{id}/chain", ceo))).isEmpty();
+
+        mockMvc.perform(get("/api/employees/{id}/headcount", ceo))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.directReports").value(2))
+                .andExpect(jsonPath("$.total").value(5));
+        mockMvc.perform(get("/api/employees/{id}/headcount", dev1))
+                .andExpect(jsonPath("$.total").value(0));
+        mockMvc.perform(get("/api/employees/{id}/reports", 999_999)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void subtreeIsPaginated() throws Exception {
+        mockMvc.perform(get("/api/employees/{id}/subtree", ceo).param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(header().string(EmployeeController.NEXT_CURSOR_HEADER, String.valueOf(lead)));
+        assertThat(ids(get("/api/employees/{id}/subtree", ceo).param("after", String.valueOf(lead))))
+                .containsExactly(dev1, dev2);
+    }
+
+    @Test
+    void movingAManagerMovesTheirSubtree() throws Exception {
+        mockMvc.perform(patch("/api/employees/{id}", lead)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"managerId\":" + vp2 + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.managerId").value(vp2));
+
+        assertThat(ids(get("/api/employees/{id}/chain", dev2))).containsExactly(lead, vp2, ceo);
+        assertThat(ids(get("/api/employees/{id}/subtree", vp1))).isEmpty();
+        assertThat(ids(get("/api/employees/{id}/subtree", vp2))).containsExactly(lead, dev1, dev2);
+        assertThat(ids(get("/api/employees/{id}/subtree", ceo))).containsExactly(vp1, vp2, lead, dev1, dev2);
+    }
+
+    @Test
+    void putWithoutManagerMovesToTheTop() throws Exception {
+        mockMvc.perform(put("/api/employees/{id}", vp1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("vp1", null)))
+                .andExpect(status().isOk());
+
+        assertThat(ids(get("/api/employees/{id}/chain", dev1))).containsExactly(lead, vp1);
+        assertThat(ids(get("/api/employees/{id}/subtree", ceo))).containsExactly(vp2);
+    }
+
+    @Test
+    void cyclesAndUnknownManagersAreRejected() throws Exception {
+        mockMvc.perform(patch("/api/employees/{id}", vp1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"managerId\":" + dev1 + "}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/employees/{id}", vp1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"managerId\":" + vp1 + "}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("orphan", 999_999L)))
+                .andExpect(status().isNotFound());
+
+        assertThat(ids(get("/api/employees/{id}/chain", vp1))).containsExactly(ceo);
+    }
+
+    @Test
+    void deletingAManagerReattachesTheirReports() throws Exception {
+        long versionBefore = json(mockMvc.perform(get("/api/employees/{id}", dev1)).andReturn()).get("version").asLong();
+
+        mockMvc.perform(delete("/api/employees/{id}", lead)).andExpect(status().isNoContent());
+
+        assertThat(ids(get("/api/employees/{id}/reports", vp1))).containsExactly(dev1, dev2);
+        assertThat(ids(get("/api/employees/{id}/chain", dev1))).containsExactly(vp1, ceo);
+        mockMvc.perform(get("/api/employees/{id}", dev1))
+                .andExpect(jsonPath("$.managerId").value(vp1))
+                .andExpect(jsonPath("$.version").value(versionBefore + 1));
+        mockMvc.perform(get("/api/employees/{id}/headcount", ceo))
+                .andExpect(jsonPath("$.total").value(4));
+    }
+
+    private long create(String name, Long managerId) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(name, managerId)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return json(result).get("id").asLong();
+    }
+
+    private String body(String name, Long managerId) {
+        return "{\"firstName\":\"" + name + "\",\"lastName\":\"Test\",\"email\":\"" + name + "@ems.test\",\"departmentId\":"
+                + departmentId + ",\"managerId\":" + managerId + "}";
+    }
+
+    private List<Long> ids(RequestBuilder request) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        json(mockMvc.perform(request).andExpect(status().isOk()).andReturn()).forEach(node -> ids.add(node.get("id").asLong()));
+        return ids;
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,88 @@
+package uk.gitsoft.ems.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the real Tomcat connector: compression happens there, not in MockMvc.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ResponseCompressionTests {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        department = departmentRepository.save(department);
+        // Well above the 2KB compression threshold
+        for (int i = 0; i < 50; i++) {
+            Employee employee = new Employee();
+            employee.setFirstname("First" + i);
+            employee.setLastname("Last" + i);
+            employee.setEmail("employee" + i + "@ems.test");
+            employee.setDepartment(department);
+            employeeRepository.save(employee);
+        }
+    }
+
+    @Test
+    void employeeListIsGzippedUnderAWeakTag() throws Exception {
+        HttpResponse<byte[]> response = get("/api/employees?limit=50", "gzip");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(response.headers().firstValue(HttpHeaders.ETAG)).hasValueSatisfying(tag -> assertThat(tag).startsWith("W/\""));
+        String vary = String.join(",", response.headers().allValues(HttpHeaders.VARY)).toLowerCase();
+        assertThat(vary.split("\\s*,\\s*")).contains("accept", "accept-encoding");
+    }
+
+    @Test
+    void clientsWithoutGzipGetThePlainBody() throws Exception {
+        HttpResponse<byte[]> response = get("/api/employees?limit=50", "identity");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(new String(response.body())).startsWith("[{");
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
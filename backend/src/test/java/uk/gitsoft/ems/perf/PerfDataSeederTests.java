@@ -0,0 +1,87 @@
+package uk.gitsoft.ems.perf;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gitsoft.ems.cache.DepartmentHeadcounts;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The perf profile on a database of its own, so the seed does not depend on what other tests left behind
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ems_perf_seed;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "ems.perf.seed.employees=3000",
+        "ems.perf.seed.departments=30"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "perf"})
+class PerfDataSeederTests {
+
+    private static final String ROWS = """
+            select e.first_name, e.last_name, e.email_id, d.department_name
+            from employees e join departments d on d.id = e.department_id
+            order by e.email_id
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PerfDataSeeder seeder;
+    @Autowired
+    private DepartmentHeadcounts headcounts;
+
+    @Test
+    void seedsTheConfiguredDirectoryBeforeServing() throws Exception {
+        assertThat(count("employees")).isEqualTo(3000);
+        mockMvc.perform(get("/api/departments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(30))
+                .andExpect(jsonPath("$[24].departmentName").value("Engineering 2"));
+        mockMvc.perform(get("/api/departments/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalEmployees").value(3000));
+
+        // Zipf-like: the first department is far larger than the last
+        List<Long> sizes = jdbcTemplate.queryForList(
+                "select count(e.id) from departments d left join employees e on e.department_id = d.id group by d.id order by d.id",
+                Long.class);
+        assertThat(sizes.get(0)).isGreaterThan(5 * sizes.get(sizes.size() - 1));
+    }
+
+    @Test
+    void sameSettingsGiveTheSameRowsAndAFilledDatabaseIsLeftAlone() {
+        List<String> first = rows();
+
+        seeder.run(null);
+        assertThat(count("employees")).isEqualTo(3000);
+
+        jdbcTemplate.update("delete from employee_changes");
+        jdbcTemplate.update("delete from employees");
+        jdbcTemplate.update("delete from departments");
+        seeder.run(null);
+        // New department ids: don't leave counts for the old ones to the other test
+        headcounts.invalidate();
+
+        assertThat(rows()).isEqualTo(first);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    private List<String> rows() {
+        return jdbcTemplate.query(ROWS, (rs, row) ->
+                rs.getString(1) + "," + rs.getString(2) + "," + rs.getString(3) + "," + rs.getString(4));
+    }
+}
@@ -0,0 +1,88 @@
+package uk.gitsoft.ems.readmodel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gitsoft.ems.dto.EmployeeDto;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmployeeColumnsTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void putUpdateAndRemove() {
+        EmployeeColumns columns = new EmployeeColumns();
+        columns.put(employee(1L, "Ada", "Lovelace", 10L, null));
+        columns.put(employee(2L, "Grace", "Hopper", null, 1L));
+
+        columns.put(employee(1L, "Ada", "King", 10L, null));
+        assertThat(columns.get(1L).getLastName()).isEqualTo("King");
+        assertThat(columns.get(2L).getDepartmentId()).isNull();
+        assertThat(columns.get(2L).getManagerId()).isEqualTo(1L);
+
+        assertThat(columns.remove(2L)).isTrue();
+        assertThat(columns.remove(2L)).isFalse();
+        assertThat(columns.get(2L)).isNull();
+        assertThat(columns.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsIdOrderWhenIdsArriveOutOfOrder() {
+        EmployeeColumns columns = new EmployeeColumns();
+        for (long id : new long[]{5, 1, 3, 2000, 4}) {
+            columns.put(employee(id, "First" + id, "Last" + id, 1L, null));
+        }
+        assertThat(ids(columns.all())).containsExactly(1L, 3L, 4L, 5L, 2000L);
+        assertThat(columns.get(3L).getFirstName()).isEqualTo("First3");
+    }
+
+    @Test
+    void survivesCompaction() {
+        EmployeeColumns columns = new EmployeeColumns();
+        for (long id = 1; id <= 3000; id++) {
+            columns.put(employee(id, "First" + id, "Last" + id, id % 7 + 1, null));
+        }
+        for (long id = 1; id <= 3000; id += 2) {
+            columns.remove(id);
+        }
+        assertThat(columns.size()).isEqualTo(1500);
+        assertThat(columns.get(2999L)).isNull();
+        assertThat(columns.get(3000L).getLastName()).isEqualTo("Last3000");
+        assertThat(columns.get(3000L).getDepartmentId()).isEqualTo(3000L % 7 + 1);
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        EmployeeColumns columns = new EmployeeColumns();
+        columns.put(employee(1L, "Zoë", "Ørsted", 3L, null));
+        columns.put(employee(2L, "Removed", "Row", 3L, null));
+        columns.put(employee(3L, "Grace", "Hopper", null, 1L));
+        columns.remove(2L);
+
+        Path file = directory.resolve("read-model.bin");
+        columns.writeTo(file, 42);
+        EmployeeColumns.Loaded loaded = EmployeeColumns.readFrom(file);
+
+        assertThat(loaded.token()).isEqualTo(42);
+        assertThat(loaded.columns().all()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(columns.all());
+        assertThat(loaded.columns().get(1L).getFirstName()).isEqualTo("Zoë");
+
+        loaded.columns().put(employee(4L, "New", "Row", 3L, 3L));
+        assertThat(ids(loaded.columns().all())).containsExactly(1L, 3L, 4L);
+    }
+
+    private static EmployeeDto employee(long id, String firstName, String lastName, Long departmentId, Long managerId) {
+        return new EmployeeDto(id, firstName, lastName, firstName.toLowerCase() + "@ems.test",
+                departmentId, null, 0L, managerId);
+    }
+
+    private static List<Long> ids(List<EmployeeDto> employees) {
+        return employees.stream().map(EmployeeDto::getId).toList();
+    }
+}
@@ -0,0 +1,181 @@
+package uk.gitsoft.ems.readmodel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gitsoft.ems.cache.DepartmentSnapshotCache;
+import uk.gitsoft.ems.changes.EmployeeChangeLog;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.repository.DepartmentRepository;
+import uk.gitsoft.ems.repository.EmployeeRepository;
+import uk.gitsoft.ems.support.QueryBudget;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Catch-up is driven by the tests, not the scheduler
+@SpringBootTest(properties = {"ems.read-model.enabled=true", "ems.read-model.refresh-interval=1h"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmployeeReadModelTests {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void snapshotPath(DynamicPropertyRegistry registry) {
+        registry.add("ems.read-model.snapshot-path", () -> directory.resolve("read-model.bin").toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EmployeeReadModel readModel;
+    @Autowired
+    private EmployeeReadModelLoader loader;
+    @Autowired
+    private EmployeeChangeLog changeLog;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private DepartmentRepository departmentRepository;
+    @Autowired
+    private DepartmentSnapshotCache departmentCache;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long departmentId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        employeeRepository.deleteAll();
+        departmentRepository.deleteAll();
+        departmentCache.invalidate();
+        Department department = new Department();
+        department.setDepartmentName("Engineering");
+        departmentId = departmentRepository.save(department).getId();
+        // The rows above bypassed the change log, so start each test from a full load
+        Files.deleteIfExists(directory.resolve("read-model.bin"));
+        loader.start();
+        assertThat(readModel.isReady()).isTrue();
+    }
+
+    @Test
+    void readsAfterLocalWritesNeedNoQuery() throws Exception {
+        long id = create("ada@ems.test");
+        departmentCache.getAll();
+
+        mockMvc.perform(get("/api/employees/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("ada@ems.test"))
+                .andExpect(jsonPath("$.departmentName").value("Engineering"))
+                .andExpect(QueryBudget.exactly(0));
+
+        mockMvc.perform(patch("/api/employees/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\":\"King\"}"))
+                .andExpect(status().isOk());
+        assertThat(readModel.find(id)).get().extracting(EmployeeDto::getLastName).isEqualTo("King");
+
+        mockMvc.perform(delete("/api/employees/" + id)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/employees/" + id))
+                .andExpect(status().isNotFound())
+                .andExpect(QueryBudget.exactly(0));
+    }
+
+    @Test
+    void rolledBackWritesAreNotApplied() throws Exception {
+        long id = create("ada@ems.test");
+        EmployeeDto changed = readModel.find(id).orElseThrow();
+        changed.setLastName("RolledBack");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            readModel.put(changed);
+            status.setRollbackOnly();
+        });
+
+        assertThat(readModel.find(id)).get().extracting(EmployeeDto::getLastName).isEqualTo("Lovelace");
+    }
+
+    @Test
+    void writesMadeElsewhereArriveThroughTheChangeLog() throws Exception {
+        long removed = create("grace@ems.test");
+        long added = writeElsewhere("hedy@ems.test");
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from employees where id = ?", removed);
+            changeLog.recordDelete(removed);
+        });
+        assertThat(readModel.find(added)).isEmpty();
+
+        loader.refresh();
+
+        assertThat(readModel.find(added)).get().extracting(EmployeeDto::getEmail).isEqualTo("hedy@ems.test");
+        assertThat(readModel.find(removed)).isEmpty();
+    }
+
+    @Test
+    void restartRestoresTheSnapshotAndReplaysLaterChanges() throws Exception {
+        long kept = create("ada@ems.test");
+        loader.snapshot();
+        long added = writeElsewhere("hedy@ems.test");
+        // Not in the change log: only a full load of the table would pick this row up
+        Employee unlogged = new Employee();
+        unlogged.setFirstname("Un");
+        unlogged.setLastname("Logged");
+        unlogged.setEmail("unlogged@ems.test");
+        long unloggedId = employeeRepository.save(unlogged).getId();
+
+        loader.start();
+
+        assertThat(readModel.isReady()).isTrue();
+        assertThat(readModel.find(kept)).isPresent();
+        assertThat(readModel.find(added)).isPresent();
+        assertThat(readModel.find(unloggedId)).isEmpty();
+    }
+
+    private long create(String email) throws Exception {
+        String body = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"" + email
+                                + "\",\"departmentId\":" + departmentId + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    // As another instance would: the row and its change-log entry, with no local hook
+    private long writeElsewhere(String email) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("insert into employees (first_name, last_name, email_id, department_id, version)"
+                    + " values ('Hedy', 'Lamarr', ?, ?, 0)", email, departmentId);
+            long id = jdbcTemplate.queryForObject("select id from employees where email_id = ?", Long.class, email);
+            changeLog.recordUpsert(id);
+            return id;
+        });
+    }
+}
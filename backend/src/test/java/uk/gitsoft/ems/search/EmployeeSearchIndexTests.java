@@ -0,0 +1,89 @@
+package uk.gitsoft.ems.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gitsoft.ems.dto.EmployeeDto;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmployeeSearchIndexTests {
+
+    private EmployeeSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EmployeeSearchIndex();
+        index.put(employee(1L, "Ada", "Lovelace", "ada@ems.test"));
+        index.put(employee(2L, "Adam", "Smith", "asmith@ems.test"));
+        index.put(employee(3L, "Grace", "Hopper", "grace@ems.test"));
+        index.put(employee(4L, "Mary-Jane", "Adams", "mj@ems.test"));
+    }
+
+    @Test
+    void exactTokenRanksAbovePrefix() {
+        assertThat(ids(index.search("ada", 10))).containsExactly(1L, 4L, 2L);
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertThat(ids(index.search("ad smi", 10))).containsExactly(2L);
+        assertThat(ids(index.search("jane", 10))).containsExactly(4L);
+        assertThat(ids(index.search("grace@", 10))).containsExactly(3L);
+    }
+
+    @Test
+    void updatesAndRemovalsAreApplied() {
+        index.put(employee(3L, "Grace", "Brewster", "grace@ems.test"));
+        assertThat(index.search("hopper", 10)).isEmpty();
+        assertThat(ids(index.search("brew", 10))).containsExactly(3L);
+
+        index.remove(1L);
+        assertThat(ids(index.search("ada", 10))).containsExactly(4L, 2L);
+    }
+
+    @Test
+    void writesInATransactionApplyOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.put(employee(5L, "Alan", "Turing", "alan@ems.test"));
+            index.remove(3L);
+            assertThat(index.search("turing", 10)).isEmpty();
+            assertThat(ids(index.search("grace", 10))).containsExactly(3L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(ids(index.search("turing", 10))).containsExactly(5L);
+        assertThat(index.search("grace", 10)).isEmpty();
+    }
+
+    @Test
+    void rolledBackWritesAreNeverApplied() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.put(employee(1L, "Ada", "Byron", "ada@ems.test"));
+            index.remove(2L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(index.search("byron", 10)).isEmpty();
+        assertThat(ids(index.search("smith", 10))).containsExactly(2L);
+    }
+
+    @Test
+    void resultsAreLimited() {
+        assertThat(index.search("a", 2)).hasSize(2);
+    }
+
+    private static EmployeeDto employee(Long id, String firstName, String lastName, String email) {
+        return new EmployeeDto(id, firstName, lastName, email, 1L, "Engineering", 0L, null);
+    }
+
+    private static List<Long> ids(List<EmployeeDto> employees) {
+        return employees.stream().map(EmployeeDto::getId).toList();
+    }
+}
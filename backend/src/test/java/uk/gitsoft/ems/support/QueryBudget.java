@@ -0,0 +1,36 @@
+package uk.gitsoft.ems.support;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+import uk.gitsoft.ems.metrics.SqlStatementCountFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MockMvc matchers for the number of SQL statements a request issued, as
+ * recorded by SqlStatementCountFilter. Use them to pin a route to its query
+ * budget so an N+1 regression fails the build:
+ *
+ * mockMvc.perform(get("/api/employees")).andExpect(QueryBudget.atMost(1));
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> assertThat(statementCount(result.getRequest().getAttribute(SqlStatementCountFilter.COUNT_ATTRIBUTE)))
+                .as("SQL statements for %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                .isLessThanOrEqualTo(statements);
+    }
+
+    public static ResultMatcher exactly(int statements) {
+        return result -> assertThat(statementCount(result.getRequest().getAttribute(SqlStatementCountFilter.COUNT_ATTRIBUTE)))
+                .as("SQL statements for %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                .isEqualTo(statements);
+    }
+
+    private static int statementCount(Object attribute) {
+        assertThat(attribute).as("SqlStatementCountFilter did not run for this request").isNotNull();
+        return (Integer) attribute;
+    }
+}
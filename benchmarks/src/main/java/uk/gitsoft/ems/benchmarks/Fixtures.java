@@ -0,0 +1,62 @@
+package uk.gitsoft.ems.benchmarks;
+
+import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic sample data shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final String[] DEPARTMENT_NAMES = {
+            "Engineering", "Sales", "Marketing", "Finance", "Human Resources",
+            "Operations", "Customer Support", "Legal", "Product", "Research"
+    };
+
+    private Fixtures() {
+    }
+
+    static Department department(int i) {
+        Department department = new Department();
+        department.setId((long) i + 1);
+        department.setDepartmentName(DEPARTMENT_NAMES[i % DEPARTMENT_NAMES.length]);
+        department.setDepartmentDescription("The " + DEPARTMENT_NAMES[i % DEPARTMENT_NAMES.length] + " department");
+        department.setVersion(0L);
+        return department;
+    }
+
+    static DepartmentDto departmentDto(int i) {
+        return new DepartmentDto((long) i + 1, DEPARTMENT_NAMES[i % DEPARTMENT_NAMES.length],
+                "The " + DEPARTMENT_NAMES[i % DEPARTMENT_NAMES.length] + " department", 0L);
+    }
+
+    static Employee employee(long id, Department department) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setFirstname("First" + id);
+        employee.setLastname("Last" + id);
+        employee.setEmail("employee" + id + "@gitsoft.uk");
+        employee.setVersion(3L);
+        employee.setDepartment(department);
+        return employee;
+    }
+
+    static EmployeeDto employeeDto(long id) {
+        int department = (int) (id % DEPARTMENT_NAMES.length);
+        return new EmployeeDto(id, "First" + id, "Last" + id, "employee" + id + "@gitsoft.uk",
+                (long) department + 1, DEPARTMENT_NAMES[department], 3L, null);
+    }
+
+    static List<EmployeeDto> employeeDtos(int count) {
+        List<EmployeeDto> employees = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            employees.add(employeeDto(id));
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gitsoft.ems.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gitsoft.ems.dto.DepartmentDto;
+import uk.gitsoft.ems.dto.EmployeeDto;
+import uk.gitsoft.ems.entity.Department;
+import uk.gitsoft.ems.entity.Employee;
+import uk.gitsoft.ems.mapper.DepartmentMapper;
+import uk.gitsoft.ems.mapper.EmployeeMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-object entity/DTO mapping cost in both directions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+
+    private Employee employee;
+    private EmployeeDto employeeDto;
+    private DepartmentDto departmentDtoForEmployee;
+    private Department department;
+    private DepartmentDto departmentDto;
+
+    @Setup
+    public void setUp() {
+        department = Fixtures.department(0);
+        departmentDto = Fixtures.departmentDto(0);
+        departmentDtoForEmployee = Fixtures.departmentDto(0);
+        employee = Fixtures.employee(42, department);
+        employeeDto = Fixtures.employeeDto(42);
+    }
+
+    @Benchmark
+    public EmployeeDto employeeToDto() {
+        return EmployeeMapper.mapToEmployeeDto(employee);
+    }
+
+    @Benchmark
+    public EmployeeDto employeeToDtoWithCachedDepartment() {
+        return EmployeeMapper.mapToEmployeeDto(employee, departmentDtoForEmployee);
+    }
+
+    @Benchmark
+    public Employee dtoToEmployee() {
+        return EmployeeMapper.mapToEmployee(employeeDto);
+    }
+
+    @Benchmark
+    public DepartmentDto departmentToDto() {
+        return DepartmentMapper.mapToDepartmentDto(department);
+    }
+
+    @Benchmark
+    public Department dtoToDepartment() {
+        return DepartmentMapper.mapToDepartment(departmentDto);
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gitsoft.ems.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * The response encodings the backend negotiates, configured as in WebConfig.
+ */
+public enum WireFormat {
+    JSON {
+        @Override
+        ObjectMapper mapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+    },
+    CBOR {
+        @Override
+        ObjectMapper mapper() {
+            return CBORMapper.builder(new CBORFactory()).findAndAddModules().build();
+        }
+    },
+    SMILE {
+        @Override
+        ObjectMapper mapper() {
+            SmileFactory factory = SmileFactory.builder()
+                    .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                    .build();
+            return SmileMapper.builder(factory).findAndAddModules().build();
+        }
+    };
+
+    abstract ObjectMapper mapper();
+}
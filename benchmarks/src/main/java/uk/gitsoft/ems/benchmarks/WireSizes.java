@@ -0,0 +1,41 @@
+package uk.gitsoft.ems.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.gitsoft.ems.dto.EmployeeDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prints the bytes on the wire for an employee list page in each format, raw and
+ * gzipped. Run with: java -cp target/benchmarks.jar uk.gitsoft.ems.benchmarks.WireSizes
+ */
+public class WireSizes {
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {50, 1000, 100_000};
+        System.out.printf("%-6s %8s %12s %12s %10s%n", "format", "rows", "raw bytes", "gzip bytes", "vs JSON");
+        for (int size : sizes) {
+            List<EmployeeDto> employees = Fixtures.employeeDtos(size);
+            long json = 0;
+            for (WireFormat format : WireFormat.values()) {
+                ObjectMapper mapper = format.mapper();
+                byte[] raw = mapper.writeValueAsBytes(employees);
+                byte[] gzipped = gzip(raw);
+                if (format == WireFormat.JSON) json = raw.length;
+                System.out.printf("%-6s %8d %12d %12d %9.0f%%%n",
+                        format, size, raw.length, gzipped.length, 100.0 * raw.length / json);
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(raw);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -10,6 +10,8 @@ function EmployeeComponents() {
     const [email, setEmail] = useState('');
 
     const [departmentId, setDepartmentId] = useState('');
+    // Not editable here, but PUT replaces the whole employee, so the manager is sent back unchanged
+    const [managerId, setManagerId] = useState(null);
     const [departments, setDepartments] = useState([]);
 
     useEffect(() => {
@@ -39,6 +41,7 @@ function EmployeeComponents() {
                     setLastName(emp.lastName || '');
                     setEmail(emp.email || '');
                     setDepartmentId(emp.departmentId || '')
+                    setManagerId(emp.managerId ?? null);
                 })
                 .catch(err => console.error(err));
         }
@@ -54,7 +57,7 @@ function EmployeeComponents() {
             return;
         }
 
-        const employee = { firstName, lastName, email, departmentId: Number(departmentId) };
+        const employee = { firstName, lastName, email, departmentId: Number(departmentId), managerId };
 
         if (id) {
             updateEmployee(id, employee)
@@ -6,13 +6,19 @@ import {useNavigate} from 'react-router-dom'
 const ListEmployeeComponents = () => {
 
     const [employees, setEmployees] = useState([])
+    const [nextCursor, setNextCursor] = useState(null)
 
     const navigate = useNavigate();
 
+    function loadPage(after){
+        listEmployees(after ? { after } : {}).then((response) => {
+            setEmployees(prev => (after ? [...prev, ...response.data] : response.data))
+            setNextCursor(response.headers['x-next-cursor'] || null)
+        }).catch((error) => {console.error(error)})
+    }
+
     useEffect(() => {
-            listEmployees().then((response) => {
-                setEmployees(response.data)
-            }).catch((error) => {console.error(error)})
+            loadPage(null)
         }
         , []);
 
@@ -72,6 +78,11 @@ const ListEmployeeComponents = () => {
                     }
                     </tbody>
                 </table>
+                {nextCursor && (
+                    <div className="text-center mb-3">
+                        <button className="btn btn-secondary" onClick={() => loadPage(nextCursor)}>Load more</button>
+                    </div>
+                )}
             </div>
         </div>
     )
@@ -3,7 +3,8 @@ import axios from "axios";
 const API_BASE_URL = import.meta.env.VITE_API_URL || "http://localhost:8080";
 const EMPLOYEE_API_BASE_URL = `${API_BASE_URL}/api/employees`;
 
-export const listEmployees = () => axios.get(EMPLOYEE_API_BASE_URL);
+// params: { after, limit, departmentId, name, email } - next page cursor comes back in the X-Next-Cursor header
+export const listEmployees = (params = {}) => axios.get(EMPLOYEE_API_BASE_URL, { params });
 
 export const createEmployee = (employee) => axios.post(EMPLOYEE_API_BASE_URL, employee);
 